@@ -0,0 +1,60 @@
+package backend.restprovider;
+
+import static backend.restprovider.MessageGenerator.MESSAGE_WORDS;
+import static backend.restprovider.MessageGenerator.TITLE_WORDS;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks generating the content of a single row with
+ * {@link MessageGenerator}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageGeneratorBenchmark {
+
+	private MessageGenerator generator;
+	private final short[] titleWords = new short[TITLE_WORDS];
+	private final short[] messageWords = new short[MESSAGE_WORDS];
+	private int dataIndex;
+
+	@Setup
+	public void setup() {
+		generator = new MessageGenerator(0);
+		generator.generateWords(42, titleWords, 0, messageWords, 0);
+	}
+
+	/**
+	 * A complete row: word indexes, title and message text, and the DTO.
+	 */
+	@Benchmark
+	public MessageDto generateDataItem() {
+		dataIndex = (dataIndex + 1) & 0xFFFF;
+		return generator.generate(dataIndex);
+	}
+
+	@Benchmark
+	public String titleText() {
+		return generator.toText(titleWords, 0, TITLE_WORDS);
+	}
+
+	@Benchmark
+	public String messageText() {
+		return generator.toText(messageWords, 0, MESSAGE_WORDS);
+	}
+}
@@ -0,0 +1,83 @@
+package backend.restprovider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Benchmarks serializing a page of already generated items to JSON, the way
+ * {@code /data} does it (materialize a list, let Jackson write it) and the way
+ * {@code /data/stream} does it (write item by item with a
+ * {@link JsonGenerator}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageSerializationBenchmark {
+
+	private static final int SIZE = 10000;
+
+	@Param({ "50", "500", "5000" })
+	int pageSize;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final DiscardingOutputStream out = new DiscardingOutputStream();
+	private MessageStore store;
+
+	@Setup
+	public void setup() {
+		store = new ChunkedMessageStore(SIZE, new MessageGenerator(0)::generate);
+		store.getRange(0, SIZE);
+	}
+
+	@Benchmark
+	public long list() throws IOException {
+		objectMapper.writeValue(out, store.getRange(0, pageSize));
+		return out.count;
+	}
+
+	@Benchmark
+	public long stream() throws IOException {
+		try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+			MessageController.writeItems(json, store, 0, pageSize);
+		}
+		return out.count;
+	}
+
+	/**
+	 * Counts and drops everything written to it, and can be written to after
+	 * being closed.
+	 */
+	private static class DiscardingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
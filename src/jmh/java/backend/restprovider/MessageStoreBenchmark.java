@@ -0,0 +1,114 @@
+package backend.restprovider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks reading a page from each {@link MessageStore} implementation, both
+ * from a fresh store where the page has to be generated first (cold) and from
+ * a store where it already exists (warm). The {@code mapped} store starts
+ * from a new, empty file for every cold read.
+ * <p>
+ * See {@link MessageStoreStartupBenchmark} for the time a restarted node takes
+ * to serve the data set.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageStoreBenchmark {
+
+	private static final int SIZE = 10000;
+
+	@State(Scope.Thread)
+	public static class Warm {
+
+		@Param({ "chunked", "columnar", "stateless", "mapped" })
+		String storage;
+
+		@Param({ "50", "500" })
+		int pageSize;
+
+		MessageStore store;
+		int offset;
+		Path file;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			file = Files.createTempFile("restprovider-warm", ".dat");
+			store = new MessageStoreConfiguration().messageStore(new MessageGenerator(0), storage, SIZE, file);
+			store.getRange(0, SIZE);
+		}
+
+		@TearDown(Level.Trial)
+		public void deleteFile() throws IOException {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * A new store for every invocation. Kept apart from {@link Warm}, so that
+	 * the warm reads don't pay for setting up a store on every call.
+	 */
+	@State(Scope.Thread)
+	public static class Cold {
+
+		@Param({ "chunked", "columnar", "stateless", "mapped" })
+		String storage;
+
+		@Param({ "50", "500" })
+		int pageSize;
+
+		MessageGenerator generator;
+		MessageStore store;
+		int offset;
+		Path file;
+
+		@Setup(Level.Trial)
+		public void createFile() throws IOException {
+			generator = new MessageGenerator(0);
+			file = Files.createTempFile("restprovider-cold", ".dat");
+		}
+
+		@Setup(Level.Invocation)
+		public void setup() throws IOException {
+			Files.deleteIfExists(file);
+			store = new MessageStoreConfiguration().messageStore(generator, storage, SIZE, file);
+			offset = (offset + pageSize) % SIZE;
+		}
+
+		@TearDown(Level.Trial)
+		public void deleteFile() throws IOException {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Benchmark
+	public List<MessageDto> cold(Cold cold) {
+		return cold.store.getRange(cold.offset, cold.pageSize);
+	}
+
+	@Benchmark
+	public List<MessageDto> warm(Warm warm) {
+		warm.offset = (warm.offset + warm.pageSize) % SIZE;
+		return warm.store.getRange(warm.offset, warm.pageSize);
+	}
+}
@@ -0,0 +1,71 @@
+package backend.restprovider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks how long a restarted node takes to serve the whole data set once:
+ * opening a {@link MessageStore} and reading all items in pages of
+ * {@code MAX_COUNT}. The heap based stores start empty and generate every
+ * item again; the {@code mapped} store reopens the file written by the
+ * previous run. The file is still in the operating system's page cache, as it
+ * would be after restarting a process on the same host.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageStoreStartupBenchmark {
+
+	private static final int PAGE_SIZE = 500;
+
+	@Param({ "chunked", "columnar", "mapped" })
+	String storage;
+
+	@Param({ "10000", "1000000" })
+	int size;
+
+	private final MessageGenerator generator = new MessageGenerator(0);
+	private Path file;
+
+	@Setup(Level.Trial)
+	public void writeFile() throws IOException {
+		file = Files.createTempFile("restprovider-startup", ".dat");
+		new MessageStoreConfiguration().messageStore(generator, storage, size, file).getRange(0, size);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFile() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public long startAndReadAll() {
+		final MessageStore store = new MessageStoreConfiguration().messageStore(generator, storage, size, file);
+		long length = 0;
+		for (int offset = 0; offset < size; offset += PAGE_SIZE) {
+			for (MessageDto item : store.getRange(offset, Math.min(PAGE_SIZE, size - offset))) {
+				length += item.getMessage().length();
+			}
+		}
+		return length;
+	}
+}
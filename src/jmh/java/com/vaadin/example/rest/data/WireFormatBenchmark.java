@@ -0,0 +1,70 @@
+package com.vaadin.example.rest.data;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import backend.restprovider.ChunkedMessageStore;
+import backend.restprovider.MessageGenerator;
+
+/**
+ * Benchmarks decoding a page of the local provider into {@link MessageDTO}s
+ * from JSON and from Smile, the two encodings {@code /data} can respond with.
+ * The encoded size of a page in both formats is printed before the
+ * measurements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WireFormatBenchmark {
+
+	private static final TypeReference<List<MessageDTO>> PAGE = new TypeReference<>() {
+	};
+
+	@Param({ "50", "500" })
+	int pageSize;
+
+	private final ObjectMapper jsonMapper = new ObjectMapper();
+	private final ObjectMapper smileMapper = new SmileMapper();
+	private byte[] json;
+	private byte[] smile;
+
+	@Setup
+	public void setup() throws IOException {
+		final List<?> page = new ChunkedMessageStore(pageSize, new MessageGenerator(0)::generate).getRange(0,
+				pageSize);
+		json = jsonMapper.writeValueAsBytes(page);
+		smile = smileMapper.writeValueAsBytes(page);
+		System.out.println(String.format("%nPage of %d items: JSON %d bytes, Smile %d bytes", pageSize, json.length,
+				smile.length));
+	}
+
+	@Benchmark
+	public List<MessageDTO> json() throws IOException {
+		return jsonMapper.readValue(json, PAGE);
+	}
+
+	@Benchmark
+	public List<MessageDTO> smile() throws IOException {
+		return smileMapper.readValue(smile, PAGE);
+	}
+}
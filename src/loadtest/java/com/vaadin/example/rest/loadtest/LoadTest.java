@@ -0,0 +1,433 @@
+package com.vaadin.example.rest.loadtest;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.vaadin.example.rest.Application;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Load test of the example views with many concurrent sessions, runnable
+ * locally without any external services:
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--sessions=200 --script=drag"
+ * </pre>
+ *
+ * Starts the application in this JVM, with {@link StubUpstream} standing in
+ * for JSONPlaceholder. The {@code ui} scenario (default) opens
+ * {@code --sessions} {@link SimulatedSession}s per view, one view after the
+ * other, each running a scroll {@code --script}:
+ * <ul>
+ * <li>{@code top}: open the view and load the first rows</li>
+ * <li>{@code scroll}: then scroll down a page at a time, {@code --steps}
+ * times with {@code --think} time in between</li>
+ * <li>{@code drag}: then drag the scrollbar to {@code --steps} random
+ * positions, with a fifth of the think time in between</li>
+ * </ul>
+ * It reports for every view the throughput of the Grid requests, their p50
+ * and p99 latency, the heap each open session takes and the requests that
+ * reached the upstreams.
+ * <p>
+ * The {@code provider} scenario loads the endpoints of the local REST provider
+ * ({@code --endpoints}, by default the blocking {@code /data} and the reactive
+ * {@code /reactive/data}) with {@code --clients} concurrent clients for
+ * {@code --duration}, and reports their throughput and latency.
+ * <p>
+ * {@code --upstream-latency} slows down the stub, {@code --provider-latency}
+ * the local REST provider (see {@code FaultInjectionFilter}). Any other
+ * {@code --name=value} argument is passed on to the application, for
+ * example {@code --rest.batch.window=5ms} or
+ * {@code --spring.threads.virtual.enabled=true}, to compare configurations.
+ */
+public class LoadTest {
+
+	private static final List<String> VIEWS = List.of("in-memory-dto", "in-memory-json", "async-in-memory-dto",
+			"lazy-dto");
+	private static final Duration LOAD_TIMEOUT = Duration.ofSeconds(30);
+
+	private final Map<String, String> options = new LinkedHashMap<>();
+	private final List<String> applicationArgs = new ArrayList<>();
+
+	private StubUpstream stub;
+	private ConfigurableApplicationContext context;
+	private String baseUrl;
+	private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(10)).build();
+
+	public static void main(String[] args) throws Exception {
+		final LoadTest loadTest = new LoadTest();
+		loadTest.parse(args);
+		try {
+			loadTest.start();
+			if (loadTest.option("scenario").equals("provider")) {
+				loadTest.runProvider();
+			} else {
+				loadTest.runUi();
+			}
+		} finally {
+			loadTest.stop();
+		}
+		System.exit(0);
+	}
+
+	private LoadTest() {
+		// defaults
+		options.put("scenario", "ui");
+		options.put("views", String.join(",", VIEWS));
+		options.put("sessions", "100");
+		options.put("script", "scroll");
+		options.put("steps", "20");
+		options.put("think", "100ms");
+		options.put("ramp-up", "5s");
+		options.put("page-size", "50");
+		options.put("upstream-latency", "0ms");
+		options.put("provider-latency", "0ms");
+		options.put("endpoints", "/data,/reactive/data");
+		options.put("clients", "100");
+		options.put("duration", "20s");
+	}
+
+	private void parse(String[] args) {
+		for (String arg : args) {
+			final String[] option = arg.replaceFirst("^--", "").split("=", 2);
+			if (option.length == 2 && options.containsKey(option[0])) {
+				options.put(option[0], option[1]);
+			} else {
+				applicationArgs.add(arg);
+			}
+		}
+	}
+
+	private String option(String name) {
+		return options.get(name);
+	}
+
+	private int intOption(String name) {
+		return Integer.parseInt(options.get(name));
+	}
+
+	private Duration durationOption(String name) {
+		return DurationStyle.detectAndParse(options.get(name));
+	}
+
+	private void start() throws IOException {
+		stub = new StubUpstream(durationOption("upstream-latency"));
+		stub.start();
+
+		final int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		baseUrl = "http://localhost:" + port;
+
+		final List<String> args = new ArrayList<>(applicationArgs);
+		addDefault(args, "server.port", port);
+		addDefault(args, "rest.upstream.jsonplaceholder.url", stub.getUrl());
+		addDefault(args, "vaadin.launch-browser", false);
+		addDefault(args, "spring.main.banner-mode", "off");
+		// the services log every fetch, too much with hundreds of sessions
+		addDefault(args, "logging.level.com.vaadin.example.rest.data", "warn");
+		addDefault(args, "logging.level.backend.restprovider", "warn");
+		final Duration providerLatency = durationOption("provider-latency");
+		if (!providerLatency.isZero()) {
+			addDefault(args, "restprovider.faults.enabled", true);
+			addDefault(args, "restprovider.faults.latency", providerLatency.toMillis() + "ms");
+			addDefault(args, "restprovider.faults.latency-rate", 1);
+			addDefault(args, "restprovider.faults.error-rate", 0);
+		}
+
+		// the restart class loader of devtools would start this main class again
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		System.out.println("Starting the application with " + args);
+		context = SpringApplication.run(Application.class, args.toArray(new String[0]));
+	}
+
+	/**
+	 * Adds an application argument, unless it was given on the command line.
+	 */
+	private static void addDefault(List<String> args, String name, Object value) {
+		if (args.stream().noneMatch(arg -> arg.startsWith("--" + name + "="))) {
+			args.add("--" + name + "=" + value);
+		}
+	}
+
+	private void stop() {
+		if (context != null) {
+			context.close();
+		}
+		if (stub != null) {
+			stub.stop();
+		}
+	}
+
+	/**
+	 * Runs the scroll script in every view, and reports the results of each.
+	 */
+	private void runUi() throws Exception {
+		final List<String> views = Arrays.asList(option("views").split(","));
+		final int sessions = intOption("sessions");
+		System.out.printf("%nScenario ui: %d sessions per view, script %s, %s steps, %s think time, %s ramp-up%n",
+				sessions, option("script"), option("steps"), option("think"), option("ramp-up"));
+
+		// a session of each view first, to warm up the JVM and the caches
+		final Map<String, Map<String, Long>> upstreamRequests = new LinkedHashMap<>();
+		final Stats warmUp = new Stats();
+		for (String view : views) {
+			runSession(view, warmUp);
+		}
+		upstreamRequests.put("(warm-up)", upstreamRequests());
+		if (warmUp.firstError.get() != null) {
+			System.out.println("Warm-up failed: " + warmUp.firstError.get());
+		}
+
+		System.out.printf("%n%-20s %8s %7s %10s %9s %9s %9s %9s %13s%n", "view", "requests", "errors", "requests/s",
+				"load p50", "load p99", "grid p50", "grid p99", "heap/session");
+		for (String view : views) {
+			final Map<String, Long> upstreamBefore = upstreamRequests();
+			final long heapBefore = usedHeapAfterGc();
+			final Stats stats = new Stats();
+
+			final long start = System.nanoTime();
+			final ExecutorService executor = Executors.newFixedThreadPool(sessions);
+			final List<Future<?>> futures = new ArrayList<>();
+			final long rampUpNanos = durationOption("ramp-up").toNanos();
+			for (int i = 0; i < sessions; i++) {
+				final long delay = rampUpNanos * i / sessions;
+				futures.add(executor.submit(() -> {
+					TimeUnit.NANOSECONDS.sleep(delay);
+					runSession(view, stats);
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			final double seconds = (System.nanoTime() - start) / 1e9;
+			executor.shutdown();
+
+			// the sessions are still open, holding their UI state
+			final long heapPerSession = (usedHeapAfterGc() - heapBefore) / sessions;
+			final Histogram load = stats.histogram("load");
+			final Histogram grid = stats.histogram("grid");
+			System.out.printf("%-20s %8d %7d %10.0f %9.1f %9.1f %9.1f %9.1f %10d kB%n", view,
+					load.getTotalCount() + grid.getTotalCount(), stats.errors.sum(),
+					(load.getTotalCount() + grid.getTotalCount()) / seconds, millis(load, 50), millis(load, 99),
+					millis(grid, 50), millis(grid, 99), heapPerSession / 1024);
+			if (stats.firstError.get() != null) {
+				System.out.println("    first error: " + stats.firstError.get());
+			}
+			upstreamRequests.put(view, difference(upstreamRequests(), upstreamBefore));
+		}
+
+		System.out.println("\n'load' is opening the view and getting its first rows, after clicking the fetch"
+				+ " button if it has one; 'grid' is a Grid request for the rows of a scroll position.");
+		System.out.println("\nRequests that reached the upstreams, per view (endpoint: count):");
+		upstreamRequests.forEach((view, counts) -> System.out.printf("%-20s %s%n", view, counts));
+		System.out.printf("Stub JSONPlaceholder, in total: %s over %d connections%n", stub.getRequestCounts(),
+				stub.getConnectionCount());
+	}
+
+	/**
+	 * One user: opens the view, gets its rows and scrolls.
+	 */
+	private void runSession(String view, Stats stats) {
+		final SimulatedSession session = new SimulatedSession(http, baseUrl);
+		try {
+			long start = System.nanoTime();
+			SimulatedSession.GridUpdate update = session.open(view);
+			if (view.startsWith("in-memory") || view.startsWith("async")) {
+				// these views fetch their data when the button is clicked
+				update = session.click("vaadin-button");
+				final long deadline = start + LOAD_TIMEOUT.toNanos();
+				while (update.rows() == 0 && System.nanoTime() < deadline) {
+					// the asynchronous view updates the Grid later, in UI.access
+					Thread.sleep(20);
+					update = session.poll();
+				}
+			}
+			if (update.rows() == 0) {
+				throw new IOException("No rows received after opening " + view);
+			}
+			stats.record("load", start);
+
+			final int pageSize = intOption("page-size");
+			final int pages = Math.max(1, session.getGridSize() / pageSize);
+			final long think = durationOption("think").toMillis();
+			int previous = 0;
+			for (int step = 1; step <= intOption("steps") && !option("script").equals("top"); step++) {
+				final int first;
+				final int length;
+				if (option("script").equals("drag")) {
+					Thread.sleep(think / 5);
+					// the Grid doesn't send rows again for the range it shows already
+					first = (previous + ThreadLocalRandom.current().nextInt(1, Math.max(2, pages))) % pages
+							* pageSize;
+					length = 2 * pageSize;
+				} else {
+					Thread.sleep(think);
+					first = (step % pages) * pageSize;
+					length = pageSize;
+				}
+				start = System.nanoTime();
+				update = session.requestRange(first, length);
+				if (update.rows() == 0) {
+					throw new IOException("No rows received for " + first + "-" + (first + length));
+				}
+				stats.record("grid", start);
+				previous = first / pageSize;
+			}
+			session.poll();
+		} catch (IOException e) {
+			stats.error(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Loads the endpoints of the local REST provider, one after the other.
+	 */
+	private void runProvider() throws Exception {
+		final int clients = intOption("clients");
+		final Duration duration = durationOption("duration");
+		final int pageSize = intOption("page-size");
+		final int size = Integer.parseInt(
+				http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/count")).build(),
+						HttpResponse.BodyHandlers.ofString()).body().trim());
+		System.out.printf("%nScenario provider: %d clients, %s per endpoint, pages of %d of %d items%n", clients,
+				option("duration"), pageSize, size);
+		System.out.printf("%n%-20s %9s %7s %10s %8s %8s%n", "endpoint", "requests", "errors", "requests/s", "p50 ms",
+				"p99 ms");
+
+		for (String endpoint : option("endpoints").split(",")) {
+			final Stats stats = new Stats();
+			final ExecutorService executor = Executors.newFixedThreadPool(clients);
+			final long warmUpEnd = System.nanoTime() + Math.min(duration.toNanos() / 4, Duration.ofSeconds(5).toNanos());
+			final long end = warmUpEnd + duration.toNanos();
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < clients; i++) {
+				futures.add(executor.submit(() -> {
+					while (System.nanoTime() < end) {
+						final int offset = ThreadLocalRandom.current().nextInt(size / pageSize) * pageSize;
+						final long start = System.nanoTime();
+						try {
+							final HttpResponse<Void> response = http.send(HttpRequest
+									.newBuilder(URI.create(
+											baseUrl + endpoint + "?limit=" + pageSize + "&offset=" + offset))
+									.header("Accept", "application/json").build(),
+									HttpResponse.BodyHandlers.discarding());
+							if (response.statusCode() != 200) {
+								throw new IOException("HTTP " + response.statusCode());
+							}
+							if (start > warmUpEnd) {
+								stats.record("request", start);
+							}
+						} catch (IOException e) {
+							stats.error(e);
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			executor.shutdown();
+
+			final Histogram requests = stats.histogram("request");
+			System.out.printf("%-20s %9d %7d %10.0f %8.1f %8.1f%n", endpoint, requests.getTotalCount(),
+					stats.errors.sum(), requests.getTotalCount() / (duration.toNanos() / 1e9), millis(requests, 50),
+					millis(requests, 99));
+			if (stats.firstError.get() != null) {
+				System.out.println("    first error: " + stats.firstError.get());
+			}
+		}
+	}
+
+	/**
+	 * Requests to the upstreams by endpoint, from the client metrics of the
+	 * application.
+	 */
+	private Map<String, Long> upstreamRequests() {
+		final Map<String, Long> counts = new TreeMap<>();
+		for (Timer timer : context.getBean(MeterRegistry.class).find("rest.client.upstream").timers()) {
+			counts.merge(timer.getId().getTag("endpoint"), timer.count(), Long::sum);
+		}
+		return counts;
+	}
+
+	private static Map<String, Long> difference(Map<String, Long> after, Map<String, Long> before) {
+		final Map<String, Long> difference = new TreeMap<>();
+		after.forEach((endpoint, count) -> {
+			final long requests = count - before.getOrDefault(endpoint, 0L);
+			if (requests > 0) {
+				difference.put(endpoint, requests);
+			}
+		});
+		return difference;
+	}
+
+	private static long usedHeapAfterGc() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(200);
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private static double millis(Histogram histogram, double percentile) {
+		return histogram.getValueAtPercentile(percentile) / 1000.0;
+	}
+
+	/**
+	 * Latencies in microseconds by action, and errors.
+	 */
+	private static class Stats {
+
+		private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+		private final LongAdder errors = new LongAdder();
+		private final AtomicReference<String> firstError = new AtomicReference<>();
+
+		void record(String action, long startNanos) {
+			histogram(action).recordValue((System.nanoTime() - startNanos) / 1000);
+		}
+
+		Histogram histogram(String action) {
+			return histograms.computeIfAbsent(action, a -> new ConcurrentHistogram(3));
+		}
+
+		void error(Exception e) {
+			errors.increment();
+			firstError.compareAndSet(null, e.toString());
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package com.vaadin.example.rest.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * One simulated browser tab showing a view. Sends the same requests as the
+ * Vaadin Flow client in a browser, without rendering anything: loading the
+ * page, navigating to the view, clicking buttons and asking the Grid
+ * connector's {@code setRequestedRange} for the rows of the scroll position.
+ * Grid updates are confirmed like the real connector does, so the server
+ * releases the rows it no longer needs to remember.
+ * <p>
+ * Server push is not connected; changes the server makes in
+ * {@code UI.access} are picked up with {@link #poll()} instead, as a browser
+ * without a working push connection would.
+ */
+class SimulatedSession {
+
+	private static final ObjectMapper mapper = new ObjectMapper();
+	private static final String UIDL_PREFIX = "for(;;);";
+
+	/**
+	 * What a response changed in the Grid: the amount of rows received, and
+	 * the new size of the Grid or -1 if it didn't change.
+	 */
+	record GridUpdate(int rows, int size) {
+	}
+
+	private final HttpClient http;
+	private final String baseUrl;
+	private String cookie;
+	private String csrfToken;
+	private int uiId;
+	private int syncId;
+	private int clientId;
+	private int promise;
+
+	private final Map<Integer, String> tags = new HashMap<>();
+	private final List<Integer> pendingConfirms = new ArrayList<>();
+	private int gridSize = -1;
+
+	SimulatedSession(HttpClient http, String baseUrl) {
+		this.http = http;
+		this.baseUrl = baseUrl;
+	}
+
+	/**
+	 * Opens a view, like loading its URL in a new browser tab.
+	 */
+	GridUpdate open(String route) throws IOException, InterruptedException {
+		final HttpResponse<String> page = send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + route)).GET());
+		page.headers().firstValue("Set-Cookie").ifPresent(setCookie -> cookie = setCookie.split(";", 2)[0]);
+
+		final JsonNode appConfig = mapper
+				.readTree(send(HttpRequest.newBuilder(URI.create(baseUrl + "/?v-r=init&location=" + route + "&query="))
+						.GET()).body())
+				.path("appConfig");
+		uiId = appConfig.path("v-uiId").asInt();
+		final JsonNode uidl = appConfig.path("uidl");
+		csrfToken = uidl.path("Vaadin-Security-Key").asText();
+		handle(uidl);
+
+		final ObjectNode navigate = rpc("event", nodeWithTag("body"));
+		navigate.put("event", "ui-navigate");
+		navigate.putObject("data").put("route", route).put("query", "").put("appShellTitle", "").put("trigger", "")
+				.putObject("historyState").put("idx", 0);
+		return uidl(navigate);
+	}
+
+	/**
+	 * Clicks the first element with the given tag, like a button.
+	 */
+	GridUpdate click(String tag) throws IOException, InterruptedException {
+		final ObjectNode click = rpc("event", nodeWithTag(tag));
+		click.put("event", "click");
+		click.putObject("data");
+		return uidl(click);
+	}
+
+	/**
+	 * Asks for the rows of a scroll position, like the Grid connector.
+	 */
+	GridUpdate requestRange(int start, int length) throws IOException, InterruptedException {
+		return uidl(call("setRequestedRange", start, length));
+	}
+
+	/**
+	 * Sends the pending Grid confirmations, and receives the changes the server
+	 * has made since the previous request.
+	 */
+	GridUpdate poll() throws IOException, InterruptedException {
+		return uidl();
+	}
+
+	/**
+	 * Returns the size of the Grid, or -1 if the server hasn't sent it yet.
+	 */
+	int getGridSize() {
+		return gridSize;
+	}
+
+	private ObjectNode rpc(String type, int node) {
+		final ObjectNode rpc = mapper.createObjectNode();
+		rpc.put("type", type);
+		rpc.put("node", node);
+		return rpc;
+	}
+
+	private ObjectNode call(String method, int... args) {
+		final ObjectNode call = rpc("publishedEventHandler", nodeWithTag("vaadin-grid"));
+		call.put("templateEventMethodName", method);
+		final ArrayNode arguments = call.putArray("templateEventMethodArgs");
+		for (int arg : args) {
+			arguments.add(arg);
+		}
+		call.put("promise", promise++);
+		return call;
+	}
+
+	private int nodeWithTag(String tag) {
+		return tags.entrySet().stream().filter(entry -> entry.getValue().equals(tag)).mapToInt(Map.Entry::getKey)
+				.min().orElseThrow(() -> new IllegalStateException("No " + tag + " in the view"));
+	}
+
+	private GridUpdate uidl(ObjectNode... invocations) throws IOException, InterruptedException {
+		final ObjectNode message = mapper.createObjectNode();
+		message.put("csrfToken", csrfToken);
+		final ArrayNode rpc = message.putArray("rpc");
+		for (int id : pendingConfirms) {
+			rpc.add(call("confirmUpdate", id));
+		}
+		pendingConfirms.clear();
+		for (ObjectNode invocation : invocations) {
+			rpc.add(invocation);
+		}
+		message.put("syncId", syncId);
+		message.put("clientId", clientId);
+
+		final String body = send(HttpRequest.newBuilder(URI.create(baseUrl + "/?v-r=uidl&v-uiId=" + uiId))
+				.header("Content-Type", "application/json; charset=UTF-8")
+				.POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(message)))).body();
+		if (!body.startsWith(UIDL_PREFIX)) {
+			throw new IOException("Unexpected response: " + body.substring(0, Math.min(body.length(), 200)));
+		}
+		final JsonNode response = mapper.readTree(body.substring(UIDL_PREFIX.length())).path(0);
+		clientId = response.has("clientId") ? response.get("clientId").asInt() : clientId + 1;
+		return handle(response);
+	}
+
+	private GridUpdate handle(JsonNode uidl) throws IOException {
+		final JsonNode error = uidl.path("meta").path("appError");
+		if (!error.isMissingNode()) {
+			throw new IOException("The server failed: " + error.path("caption").asText());
+		}
+		if (uidl.has("syncId")) {
+			syncId = uidl.get("syncId").asInt();
+		}
+		for (JsonNode change : uidl.path("changes")) {
+			if ("tag".equals(change.path("key").asText())) {
+				tags.put(change.get("node").asInt(), change.get("value").asText());
+			}
+		}
+
+		int rows = 0;
+		int size = -1;
+		for (JsonNode execute : uidl.path("execute")) {
+			final String script = execute.get(execute.size() - 1).asText();
+			if (script.contains("$connector.set(")) {
+				rows += execute.path(2).path(1).size();
+			} else if (script.contains("$connector.updateSize(")) {
+				size = execute.path(1).asInt();
+				gridSize = size;
+			} else if (script.contains("$connector.confirm(")) {
+				pendingConfirms.add(execute.path(1).asInt());
+			}
+		}
+		return new GridUpdate(rows, size);
+	}
+
+	private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+		if (cookie != null) {
+			request.header("Cookie", cookie);
+		}
+		final HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200) {
+			throw new IOException("HTTP " + response.statusCode() + " from " + response.uri());
+		}
+		return response;
+	}
+}
@@ -0,0 +1,144 @@
+package com.vaadin.example.rest.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Stands in for JSONPlaceholder, so the load test needs no external services.
+ * Serves {@code /comments} (500 items) and {@code /posts} (100 items) shaped
+ * like the real ones, with the same caching headers, after an optional
+ * latency. Counts the requests per path and the connections they came in on.
+ */
+class StubUpstream {
+
+	private static final String[] WORDS = { "laudantium", "enim", "quasi", "est", "quidem", "magnam", "voluptate",
+			"ipsam", "eos", "tempora", "quo", "necessitatibus", "dolor", "quam", "autem", "quasi", "reiciendis", "et",
+			"nam", "sapiente", "accusantium" };
+
+	private final HttpServer server;
+	private final Duration latency;
+	private final Map<String, byte[]> bodies;
+	private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+	private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+	StubUpstream(Duration latency) throws IOException {
+		this.latency = latency;
+		final ObjectMapper mapper = new ObjectMapper();
+		bodies = Map.of("/comments", mapper.writeValueAsBytes(comments(mapper)), "/posts",
+				mapper.writeValueAsBytes(posts(mapper)));
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", this::handle);
+	}
+
+	void start() {
+		server.start();
+	}
+
+	void stop() {
+		server.stop(0);
+	}
+
+	String getUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns the amount of requests per path.
+	 */
+	Map<String, Long> getRequestCounts() {
+		final Map<String, Long> counts = new ConcurrentHashMap<>();
+		requests.forEach((path, count) -> counts.put(path, count.sum()));
+		return counts;
+	}
+
+	/**
+	 * Returns the amount of connections requests came in on.
+	 */
+	int getConnectionCount() {
+		return connections.size();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			final String path = exchange.getRequestURI().getPath();
+			requests.computeIfAbsent(path, p -> new LongAdder()).increment();
+			connections.add(exchange.getRemoteAddress());
+			if (!latency.isZero()) {
+				Thread.sleep(latency.toMillis());
+			}
+
+			final byte[] body = bodies.get(path);
+			if (body == null) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			final String etag = "W/\"" + Integer.toHexString(body.length) + "-" + path.length() + "\"";
+			exchange.getResponseHeaders().set("Cache-Control", "max-age=43200");
+			exchange.getResponseHeaders().set("ETag", etag);
+			if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static ArrayNode comments(ObjectMapper mapper) {
+		final ArrayNode comments = mapper.createArrayNode();
+		for (int id = 1; id <= 500; id++) {
+			final ObjectNode comment = comments.addObject();
+			comment.put("postId", (id - 1) / 5 + 1);
+			comment.put("id", id);
+			comment.put("name", text(id, 5));
+			comment.put("email", WORDS[id % WORDS.length] + "@" + WORDS[(id * 7) % WORDS.length] + ".biz");
+			comment.put("body", text(id * 31, 25));
+		}
+		return comments;
+	}
+
+	private static ArrayNode posts(ObjectMapper mapper) {
+		final ArrayNode posts = mapper.createArrayNode();
+		for (int id = 1; id <= 100; id++) {
+			final ObjectNode post = posts.addObject();
+			post.put("userId", (id - 1) / 10 + 1);
+			post.put("id", id);
+			post.put("title", text(id, 6));
+			post.put("body", text(id * 17, 30));
+		}
+		return posts;
+	}
+
+	private static String text(int seed, int words) {
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < words; i++) {
+			if (i > 0) {
+				text.append(i % 8 == 0 ? '\n' : ' ');
+			}
+			text.append(WORDS[(seed + i * i) % WORDS.length]);
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,102 @@
+package backend.restprovider;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class for the {@link MessageStore}s that generate their items a chunk at
+ * a time, the first time any item of the chunk is requested.
+ * <p>
+ * Reading a generated chunk takes no lock, and generating one locks only that
+ * chunk. A volatile flag per chunk publishes its content. Subclasses decide
+ * how a chunk is kept, in {@link #generateChunk(int, int, int)}, and how an
+ * item is read back, in {@link #read(int)}.
+ */
+abstract class AbstractChunkedMessageStore implements MessageStore {
+
+	static final int CHUNK_SIZE = 256;
+
+	private final int size;
+	private final AtomicIntegerArray generated;
+	private final Object[] locks;
+	private final AtomicLong generatedItems = new AtomicLong();
+
+	protected AbstractChunkedMessageStore(int size) {
+		this.size = size;
+
+		final int chunkCount = chunkCount(size);
+		generated = new AtomicIntegerArray(chunkCount);
+		locks = new Object[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	static int chunkCount(int size) {
+		return (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public final MessageDto get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		ensureChunk(index / CHUNK_SIZE);
+		return read(index);
+	}
+
+	/**
+	 * Returns how many items this store has generated since it was created.
+	 * Chunks marked with {@link #restoreChunk(int)} are not counted.
+	 */
+	@Override
+	public long getGeneratedCount() {
+		return generatedItems.get();
+	}
+
+	/**
+	 * Marks a chunk as generated without generating it, for chunks a store
+	 * already has from before it was created. Must be called from the
+	 * constructor of the subclass.
+	 */
+	protected final void restoreChunk(int chunkIndex) {
+		generated.set(chunkIndex, 1);
+	}
+
+	/**
+	 * Generates and keeps the items from {@code first} (inclusive) to
+	 * {@code last} (exclusive) of the given chunk. Called once per chunk, with
+	 * the lock of the chunk held.
+	 */
+	protected abstract void generateChunk(int chunkIndex, int first, int last);
+
+	/**
+	 * Returns the item at the given index, from a chunk that has been
+	 * generated.
+	 */
+	protected abstract MessageDto read(int index);
+
+	private void ensureChunk(int chunkIndex) {
+		// the volatile read makes the writes of the generating thread visible
+		if (generated.get(chunkIndex) != 0) {
+			return;
+		}
+
+		synchronized (locks[chunkIndex]) {
+			// another thread may have generated the chunk while we were waiting
+			if (generated.get(chunkIndex) == 0) {
+				final int first = chunkIndex * CHUNK_SIZE;
+				final int last = Math.min(first + CHUNK_SIZE, size);
+				generateChunk(chunkIndex, first, last);
+				// publish only fully generated chunks
+				generated.set(chunkIndex, 1);
+				generatedItems.addAndGet(last - first);
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package backend.restprovider;
+
+/**
+ * Default {@link MessageStore}. Items are kept in a dense array of fixed size
+ * chunks, and each chunk is generated as a whole the first time any of its
+ * items is requested.
+ * <p>
+ * Reads of already generated chunks do not take any locks, so concurrent page
+ * reads scale with the amount of cores. Generating a chunk locks only that
+ * chunk; threads asking for other chunks are not blocked.
+ */
+public class ChunkedMessageStore extends AbstractChunkedMessageStore {
+
+	private final Generator generator;
+	private final MessageDto[][] chunks;
+
+	public ChunkedMessageStore(int size, Generator generator) {
+		super(size);
+		this.generator = generator;
+		chunks = new MessageDto[chunkCount(size)][];
+	}
+
+	@Override
+	protected MessageDto read(int index) {
+		return chunks[index / CHUNK_SIZE][index % CHUNK_SIZE];
+	}
+
+	@Override
+	protected void generateChunk(int chunkIndex, int first, int last) {
+		final MessageDto[] chunk = new MessageDto[last - first];
+		for (int i = 0; i < chunk.length; i++) {
+			chunk[i] = generator.apply(first + i);
+		}
+		chunks[chunkIndex] = chunk;
+	}
+}
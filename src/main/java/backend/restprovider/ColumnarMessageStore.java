@@ -0,0 +1,46 @@
+package backend.restprovider;
+
+import static backend.restprovider.MessageGenerator.MESSAGE_WORDS;
+import static backend.restprovider.MessageGenerator.TITLE_WORDS;
+
+/**
+ * Compact {@link MessageStore} for very large data sets. Instead of keeping
+ * {@link MessageDto} objects around, titles and messages are stored as word
+ * indexes into the {@link MessageGenerator} dictionary in two flat
+ * {@code short[]} columns. Ids are implicit: the index of a row is its id.
+ * <p>
+ * {@link MessageDto} objects are created only when an item is read, and are
+ * not retained by the store.
+ * <p>
+ * Like {@link ChunkedMessageStore}, rows are generated a chunk at a time on
+ * first access, with a lock per chunk.
+ */
+public class ColumnarMessageStore extends AbstractChunkedMessageStore {
+
+	private final MessageGenerator generator;
+	private final short[] titles;
+	private final short[] messages;
+
+	public ColumnarMessageStore(int size, MessageGenerator generator) {
+		super(size);
+		this.generator = generator;
+		titles = new short[Math.multiplyExact(size, TITLE_WORDS)];
+		messages = new short[Math.multiplyExact(size, MESSAGE_WORDS)];
+	}
+
+	@Override
+	protected MessageDto read(int index) {
+		final MessageDto data = new MessageDto();
+		data.setId(index);
+		data.setTitle(generator.toText(titles, index * TITLE_WORDS, TITLE_WORDS));
+		data.setMessage(generator.toText(messages, index * MESSAGE_WORDS, MESSAGE_WORDS));
+		return data;
+	}
+
+	@Override
+	protected void generateChunk(int chunkIndex, int first, int last) {
+		for (int i = first; i < last; i++) {
+			generator.generateWords(i, titles, i * TITLE_WORDS, messages, i * MESSAGE_WORDS);
+		}
+	}
+}
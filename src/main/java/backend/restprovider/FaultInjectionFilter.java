@@ -0,0 +1,83 @@
+package backend.restprovider;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Turns the local REST provider into a misbehaving upstream, to see how the
+ * REST clients cope with slow and failing APIs. Enabled with
+ * {@code restprovider.faults.enabled=true}, for example
+ * {@code mvn spring-boot:run -Dspring-boot.run.arguments=--restprovider.faults.enabled=true}:
+ * <ul>
+ * <li>{@code restprovider.faults.latency}: delay added to a request</li>
+ * <li>{@code restprovider.faults.latency-rate}: share of the requests that are
+ * delayed, 0 to 1</li>
+ * <li>{@code restprovider.faults.error-rate}: share of the requests that are
+ * answered with 503 Service Unavailable, 0 to 1</li>
+ * </ul>
+ * Only the data APIs ({@code /count}, {@code /data} and their
+ * {@code /reactive} counterparts) are affected, not the views or the actuator
+ * endpoints.
+ * <p>
+ * Never enable this in production.
+ */
+@Component
+@ConditionalOnProperty(name = "restprovider.faults.enabled", havingValue = "true")
+public class FaultInjectionFilter extends OncePerRequestFilter {
+
+	private static final Logger log = LoggerFactory.getLogger(FaultInjectionFilter.class);
+
+	private final Duration latency;
+	private final double latencyRate;
+	private final double errorRate;
+
+	public FaultInjectionFilter(@Value("${restprovider.faults.latency:2s}") Duration latency,
+			@Value("${restprovider.faults.latency-rate:0.1}") double latencyRate,
+			@Value("${restprovider.faults.error-rate:0.1}") double errorRate) {
+		this.latency = latency;
+		this.latencyRate = latencyRate;
+		this.errorRate = errorRate;
+		log.warn("Injecting faults into the REST provider: {} latency for {}% and errors for {}% of the requests",
+				latency, latencyRate * 100, errorRate * 100);
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		final String path = request.getRequestURI().substring(request.getContextPath().length());
+		final String api = path.startsWith("/reactive/") ? path.substring("/reactive".length()) : path;
+		return !api.equals("/count") && !api.startsWith("/data");
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		if (random.nextDouble() < latencyRate) {
+			try {
+				Thread.sleep(latency.toMillis());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		if (random.nextDouble() < errorRate) {
+			response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Injected fault");
+			return;
+		}
+		chain.doFilter(request, response);
+	}
+}
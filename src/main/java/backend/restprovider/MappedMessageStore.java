@@ -0,0 +1,193 @@
+package backend.restprovider;
+
+import static backend.restprovider.MessageGenerator.MESSAGE_WORDS;
+import static backend.restprovider.MessageGenerator.TITLE_WORDS;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link MessageStore} that persists the generated items in a memory-mapped
+ * file. The items live outside the Java heap, in the operating system's page
+ * cache, and survive restarts: a restarted node serves the items generated by
+ * its previous run right away, without generating them again.
+ * <p>
+ * The file has three segments:
+ * <ul>
+ * <li>a header identifying the data set (format, seed and size), followed by
+ * one flag per chunk telling whether the chunk has been generated</li>
+ * <li>a fixed-width index segment with an entry for every id: the offset of
+ * the item in the data segment and the byte lengths of its title and
+ * message</li>
+ * <li>a data segment with the UTF-8 encoded titles and messages. Every chunk
+ * has a slot big enough for its longest possible items, so chunks can be
+ * written in any order; the unused tail of a slot is never written and takes
+ * no disk space in a sparse file.</li>
+ * </ul>
+ * Like {@link ChunkedMessageStore}, rows are generated a chunk at a time on
+ * first access, with a lock per chunk. Reading an item copies its bytes from
+ * the mapped file to a reusable buffer and decodes its two strings from there;
+ * the store itself keeps nothing on the heap but the chunk flags.
+ * <p>
+ * A generated chunk is forced to the storage device before its flag is set,
+ * and the flag is forced right after. A process or machine crash therefore
+ * loses at most the chunks that were being generated, which are generated
+ * again on the next run; it never leaves a flagged chunk with missing data.
+ * This costs one sync per generated chunk. The file itself is not
+ * checksummed, so damage from outside the store is not detected.
+ * <p>
+ * A file that was written for another seed, size or format is overwritten. A
+ * file must not be shared by several running processes.
+ */
+public class MappedMessageStore extends AbstractChunkedMessageStore {
+
+	/**
+	 * Bump when the layout of the file, or the content the generator produces,
+	 * changes.
+	 */
+	private static final int FORMAT_VERSION = 1;
+	private static final int MAGIC = 0x524D5347; // "RMSG"
+
+	private static final int HEADER_BYTES = 24;
+	private static final int INDEX_ENTRY_BYTES = 12;
+	private static final int MAX_REGION_BYTES = 1 << 30;
+
+	private final MessageGenerator generator;
+
+	/**
+	 * The header, chunk flags and index segment.
+	 */
+	private final MappedByteBuffer indexSegment;
+	private final int indexStart;
+
+	/**
+	 * The data segment, in regions of up to {@code MAX_REGION_BYTES}, as one
+	 * mapping can't be larger than 2 GB. A chunk never spans two regions.
+	 */
+	private final MappedByteBuffer[] regions;
+	private final int chunkSlotBytes;
+	private final int chunksPerRegion;
+	private final long regionBytes;
+
+	/**
+	 * Buffer an item's text is read to before it's turned into a string.
+	 */
+	private final ThreadLocal<byte[]> textBuffer;
+
+	/**
+	 * Opens the store in the given file, creating the file if it doesn't exist
+	 * or was written for another data set.
+	 */
+	public MappedMessageStore(int size, MessageGenerator generator, Path file) {
+		super(size);
+		this.generator = generator;
+
+		final int chunkCount = chunkCount(size);
+		int maxWordBytes = 0;
+		for (int i = 0; i < MessageGenerator.getWordCount(); i++) {
+			maxWordBytes = Math.max(maxWordBytes,
+					MessageGenerator.getDisplayWord(i).getBytes(StandardCharsets.UTF_8).length);
+		}
+		final int maxItemBytes = (TITLE_WORDS + MESSAGE_WORDS) * (maxWordBytes + 1);
+		textBuffer = ThreadLocal.withInitial(() -> new byte[maxItemBytes]);
+
+		indexStart = HEADER_BYTES + chunkCount;
+		final long indexBytes = indexStart + (long) size * INDEX_ENTRY_BYTES;
+		if (indexBytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many items for a mapped store: " + size);
+		}
+		chunkSlotBytes = CHUNK_SIZE * maxItemBytes;
+		chunksPerRegion = MAX_REGION_BYTES / chunkSlotBytes;
+		regionBytes = (long) chunksPerRegion * chunkSlotBytes;
+		final int regionCount = (chunkCount + chunksPerRegion - 1) / chunksPerRegion;
+		// start the data segment on a page boundary
+		final long dataStart = (indexBytes + 4095) & ~4095L;
+		final long fileBytes = dataStart + (long) chunkCount * chunkSlotBytes;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			final boolean reuse = channel.size() == fileBytes && hasHeader(channel, size);
+			if (!reuse) {
+				// extend the file without writing it, leaving the unused space sparse
+				channel.truncate(0);
+				channel.write(ByteBuffer.allocate(1), fileBytes - 1);
+			}
+
+			indexSegment = channel.map(FileChannel.MapMode.READ_WRITE, 0, indexBytes);
+			regions = new MappedByteBuffer[regionCount];
+			for (int region = 0; region < regionCount; region++) {
+				final long regionStart = region * regionBytes;
+				regions[region] = channel.map(FileChannel.MapMode.READ_WRITE, dataStart + regionStart,
+						Math.min(regionBytes, fileBytes - dataStart - regionStart));
+			}
+			if (!reuse) {
+				indexSegment.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putLong(8, generator.getSeed())
+						.putInt(16, size);
+				indexSegment.force(0, HEADER_BYTES);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Opening " + file + " failed", e);
+		}
+
+		for (int i = 0; i < chunkCount; i++) {
+			if (indexSegment.get(HEADER_BYTES + i) != 0) {
+				restoreChunk(i);
+			}
+		}
+	}
+
+	private boolean hasHeader(FileChannel channel, int size) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		channel.read(header, 0);
+		return header.getInt(0) == MAGIC && header.getInt(4) == FORMAT_VERSION
+				&& header.getLong(8) == generator.getSeed() && header.getInt(16) == size;
+	}
+
+	@Override
+	protected MessageDto read(int index) {
+		final int entry = indexStart + index * INDEX_ENTRY_BYTES;
+		final long offset = indexSegment.getLong(entry);
+		final int titleBytes = indexSegment.getShort(entry + 8);
+		final int messageBytes = indexSegment.getShort(entry + 10);
+
+		final byte[] buffer = textBuffer.get();
+		regions[(int) (offset / regionBytes)].get((int) (offset % regionBytes), buffer, 0, titleBytes + messageBytes);
+
+		final MessageDto data = new MessageDto();
+		data.setId(index);
+		data.setTitle(new String(buffer, 0, titleBytes, StandardCharsets.UTF_8));
+		data.setMessage(new String(buffer, titleBytes, messageBytes, StandardCharsets.UTF_8));
+		return data;
+	}
+
+	@Override
+	protected void generateChunk(int chunkIndex, int first, int last) {
+		final MappedByteBuffer region = regions[chunkIndex / chunksPerRegion];
+		final long slotOffset = (long) chunkIndex * chunkSlotBytes;
+		final int slotPosition = (chunkIndex % chunksPerRegion) * chunkSlotBytes;
+		int written = 0;
+		for (int i = first; i < last; i++) {
+			final MessageDto item = generator.generate(i);
+			final byte[] title = item.getTitle().getBytes(StandardCharsets.UTF_8);
+			final byte[] message = item.getMessage().getBytes(StandardCharsets.UTF_8);
+			region.put(slotPosition + written, title).put(slotPosition + written + title.length, message);
+
+			final int entry = indexStart + i * INDEX_ENTRY_BYTES;
+			indexSegment.putLong(entry, slotOffset + written)
+					.putShort(entry + 8, (short) title.length)
+					.putShort(entry + 10, (short) message.length);
+			written += title.length + message.length;
+		}
+		// the flag may reach the disk only after the items it stands for
+		region.force(slotPosition, written);
+		indexSegment.force(indexStart + first * INDEX_ENTRY_BYTES, (last - first) * INDEX_ENTRY_BYTES);
+		indexSegment.put(HEADER_BYTES + chunkIndex, (byte) 1);
+		indexSegment.force(HEADER_BYTES + chunkIndex, 1);
+	}
+}
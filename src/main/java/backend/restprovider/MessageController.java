@@ -1,13 +1,33 @@
 package backend.restprovider;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
-import java.util.Random;
-import java.util.TreeMap;
+import java.util.function.Supplier;
 
-import org.apache.commons.lang3.text.WordUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Implementation of a paging REST provider. Used to demonstrate lazy loading
@@ -16,99 +36,298 @@ import org.springframework.web.bind.annotation.RestController;
  * Created mainly because most 3rd party REST APIs are commercial, especially
  * for the amount of traffic a Vaadin demo needs.
  * <p>
+ * The data set never changes while the application runs, so the responses of
+ * {@code /count}, {@code /data} and {@code /data/cursor} carry a strong ETag
+ * and a {@code Cache-Control} max age. Requests with a matching
+ * {@code If-None-Match} header are answered with 304 Not Modified without
+ * reading or serializing any items. Failed requests get neither header, so
+ * caches don't store errors.
+ * <p>
  * The implementation here is not relevant for the Vaadin example itself, and
  * should not be taken as a production-ready implementation for REST services.
  */
 @RestController
 public class MessageController {
 
+	private static final Logger log = LoggerFactory.getLogger(MessageController.class);
+
 	private static final int MAX_COUNT = 500;
-	private static final int SIZE = 10000;
+	private static final int MAX_BATCH_RANGES = 20;
 
 	/**
-	 * Random words used for generating data
+	 * Media type of the binary Smile encoding of JSON, supported by the data
+	 * APIs next to plain JSON
 	 */
-	private static final String[] words;
-	static {
+	static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
 
-		final String LOREM_IPSUM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Integer non vulputate elit, a aliquam nisi. Orci varius natoque penatibus et magnis dis parturient montes, nascetur ridiculus mus. Cras sagittis mauris varius dolor varius pulvinar. Integer ac suscipit ligula, non lacinia est. Nulla metus velit, vulputate sed sagittis at, semper quis turpis. Proin in metus vestibulum, luctus mauris nec, ultrices ipsum. Etiam maximus massa porta congue tempor. Pellentesque habitant morbi tristique senectus et netus et malesuada fames ac turpis egestas. Cras ut justo sed purus pretium egestas. Vestibulum ante ipsum primis in faucibus orci luctus et ultrices posuere cubilia Curae; Vestibulum rutrum vitae ex sed rutrum. Donec eget metus eget lacus rhoncus interdum sed sed urna.\n"
-				+ "Cras blandit sapien leo, vel ultrices justo scelerisque posuere. Maecenas ut sollicitudin ante. Ut euismod mauris a laoreet tristique. Donec tristique risus a ornare feugiat. Proin et condimentum risus. Vivamus accumsan, nisl ut interdum interdum, purus massa bibendum enim, in lobortis purus ex ac mi. Aenean tempus odio urna, eu aliquam neque sodales id. Aenean magna ante, ultrices sed vestibulum nec, facilisis eget leo. Duis erat elit, rhoncus ac leo nec, tincidunt facilisis augue.";
+	/**
+	 * Replacement for a DB. Is lazily populated by demand.
+	 */
+	private final MessageStore BACKEND;
 
-		words = LOREM_IPSUM.split(" ");
-	}
+	/**
+	 * Indexes for sorted and filtered requests
+	 */
+	private final MessageIndex index;
 
-	private final Random rand = new Random();
+	private final JsonFactory jsonFactory;
 
 	/**
-	 * Replacement for a DB. Is lazily populated by demand.
+	 * Identifies the content of the data set, the start of every ETag. Bump the
+	 * leading number when a change in the generator changes the content.
 	 */
-	private final TreeMap<Integer, MessageDto> BACKEND = new TreeMap<>();
+	private final String dataVersion;
+	private final CacheControl cacheControl;
+
+	/**
+	 * Maximum amount of items of one {@code /data/stream} request
+	 */
+	private final int maxStreamLimit;
+
+	public MessageController(MessageStore backend, MessageIndex index, MessageGenerator generator,
+			ObjectMapper objectMapper, @Value("${restprovider.cache-max-age:10m}") Duration cacheMaxAge,
+			@Value("${restprovider.stream.max-limit:2000}") int maxStreamLimit) {
+		BACKEND = backend;
+		this.index = index;
+		this.maxStreamLimit = maxStreamLimit;
+		jsonFactory = objectMapper.getFactory();
+		dataVersion = "1." + Long.toHexString(generator.getSeed()) + "." + backend.size();
+		cacheControl = CacheControl.maxAge(cacheMaxAge).cachePublic();
+	}
 
 	/**
 	 * REST API for getting the total count of items
 	 * <p>
-	 * GET http://localhost:8080/count
+	 * GET http://localhost:8080/count<br>
+	 * GET http://localhost:8080/count?titlePrefix=lorem&word=ipsum for the count
+	 * of filtered items, see {@link MessageQuery}
+	 *
+	 * @param query optional filters
 	 */
 	@GetMapping("/count")
-	public int count() {
-		return SIZE;
+	public ResponseEntity<Integer> count(MessageQuery query, ServletWebRequest request) {
+		return cacheable(request, query, () -> query.isAll() ? BACKEND.size() : index.count(query), "count");
 	}
 
 	/**
 	 * REST API for getting the items themselves
 	 * <p>
-	 * GET http://localhost:8080/data?count=50&offset=400
+	 * GET http://localhost:8080/data?count=50&offset=400<br>
+	 * GET http://localhost:8080/data?count=50&offset=400&sort=title&descending=true&word=ipsum
+	 * for sorted and filtered items, see {@link MessageQuery}
+	 * <p>
+	 * Responds with JSON, or with the binary Smile encoding of the same
+	 * structure when requested with {@code Accept: application/x-jackson-smile}.
 	 *
 	 * @param limit  how many items should be returned
 	 * @param offset from what index the data should start
+	 * @param query  optional sort order and filters
 	 */
-	@GetMapping("/data")
-	public List<MessageDto> data(int limit, int offset) {
+	@GetMapping(path = "/data", produces = { MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE })
+	public ResponseEntity<List<MessageDto>> data(int limit, int offset, MessageQuery query,
+			ServletWebRequest request) {
 
-		System.out.println("Backend providing items " + offset + " to " + (offset + limit));
-		if (limit > MAX_COUNT || limit + offset > SIZE) {
-			throw new RuntimeException("indexes outside bounds");
+		return cacheable(request, query, () -> {
+			log.debug("Backend providing items {} to {}", offset, offset + limit);
+			return read(limit, offset, query);
+		}, "data", offset, limit);
+	}
+
+	/**
+	 * Batch REST API for getting several ranges of items in one round trip,
+	 * for example the rows around a few scroll positions of a Grid. The ranges
+	 * are sent as a JSON array in the request body, and the response has a list
+	 * of items for each range, in the same order.
+	 * <p>
+	 * POST http://localhost:8080/data/batch?sort=title<br>
+	 * [{"offset":0,"limit":50},{"offset":4000,"limit":100}]
+	 *
+	 * @param ranges the ranges to return, at most {@code MAX_BATCH_RANGES}
+	 * @param query  optional sort order and filters, applied to all ranges
+	 */
+	@PostMapping(path = "/data/batch", produces = { MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE })
+	public List<List<MessageDto>> dataBatch(@RequestBody List<MessageRangeDto> ranges, MessageQuery query) {
+
+		log.debug("Backend providing batch of {} ranges", ranges.size());
+		if (ranges.size() > MAX_BATCH_RANGES) {
+			throw new RuntimeException("too many ranges");
 		}
+		final List<List<MessageDto>> result = new ArrayList<>(ranges.size());
+		for (MessageRangeDto range : ranges) {
+			result.add(read(range.getLimit(), range.getOffset(), query));
+		}
+		return result;
+	}
 
-		// make sure data is generated
-		ensureData(limit, offset);
+	private List<MessageDto> read(int limit, int offset, MessageQuery query) {
+		if (query.isAll()) {
+			if (limit < 0 || offset < 0 || limit > MAX_COUNT || limit + offset > BACKEND.size()) {
+				throw new RuntimeException("indexes outside bounds");
+			}
+
+			// fetch subset from the store, missing items are generated on the way
+			final List<MessageDto> list = BACKEND.getRange(offset, limit);
+
+			return list;
+		}
 
-		// fetch subset from the map
-		final List<MessageDto> list = new ArrayList<>(BACKEND.subMap(offset, offset + limit).values());
+		if (limit < 0 || offset < 0 || limit > MAX_COUNT) {
+			throw new RuntimeException("indexes outside bounds");
+		}
 
+		// find the matching ids from the indexes, then the items from the store
+		final int[] ids = index.ids(query, offset, limit);
+		final List<MessageDto> list = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			list.add(BACKEND.get(id));
+		}
 		return list;
 	}
 
-	private void ensureData(int count, int offset) {
+	/**
+	 * Cursor based REST API for getting the items. Returns a page of items and a
+	 * cursor for the next page. Reading a data set sequentially with cursors
+	 * gives stable results and costs only the size of each page.
+	 * <p>
+	 * GET http://localhost:8080/data/cursor?limit=50 for the first page<br>
+	 * GET http://localhost:8080/data/cursor?limit=50&offset=400 to jump to a
+	 * random position<br>
+	 * GET http://localhost:8080/data/cursor?limit=50&after=... for the page
+	 * after the one that returned the cursor
+	 * <p>
+	 * Like {@code /data}, responds with JSON or Smile.
+	 *
+	 * @param limit  how many items should be returned
+	 * @param after  cursor from a previous page, or {@code null} to start from
+	 *               'offset'
+	 * @param offset from what index the data should start, when there is no
+	 *               cursor
+	 */
+	@GetMapping(path = "/data/cursor", produces = { MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE })
+	public ResponseEntity<MessagePageDto> dataPage(int limit, @RequestParam(required = false) String after,
+			@RequestParam(defaultValue = "0") int offset, ServletWebRequest request) {
+
+		final int start = after != null ? MessageCursor.decode(after) + 1 : offset;
+		return cacheable(request, MessageQuery.ALL, () -> {
+			log.debug("Backend providing page of {} items from {}", limit, start);
+			if (limit < 0 || limit > MAX_COUNT || start < 0 || start > BACKEND.size()) {
+				throw new RuntimeException("indexes outside bounds");
+			}
+
+			final int end = Math.min(start + limit, BACKEND.size());
+			final MessagePageDto page = new MessagePageDto();
+			page.setItems(BACKEND.getRange(start, end - start));
+			page.setNext(end < BACKEND.size() && end > start ? MessageCursor.encode(end - 1) : null);
+			return page;
+		}, "cursor", start, limit);
+	}
 
-		for (int i = 0; i < count; i++) {
+	/**
+	 * Answers with 304 Not Modified if the client already has the requested
+	 * data, and otherwise with the body from {@code body}. The caching headers
+	 * are added only to these two; if {@code body} fails, the error response
+	 * has neither.
+	 */
+	private <T> ResponseEntity<T> cacheable(ServletWebRequest request, MessageQuery query, Supplier<T> body,
+			String resource, int... range) {
+		final ETag etag = etag(request, query, resource, range);
+		if (isNotModified(request, etag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.formattedTag()).cacheControl(cacheControl)
+					.varyBy(HttpHeaders.ACCEPT).build();
+		}
+		final T result = body.get();
+		return ResponseEntity.ok().eTag(etag.formattedTag()).cacheControl(cacheControl).varyBy(HttpHeaders.ACCEPT)
+				.body(result);
+	}
 
-			final int dataIndex = offset + i;
-			if (!BACKEND.containsKey(dataIndex)) {
-				BACKEND.put(dataIndex, generateDataItem(dataIndex));
+	/**
+	 * Returns whether an {@code If-None-Match} header of the request matches the
+	 * ETag.
+	 */
+	private static boolean isNotModified(ServletWebRequest request, ETag etag) {
+		final String[] values = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+		if (values == null) {
+			return false;
+		}
+		for (String value : values) {
+			for (ETag candidate : ETag.parse(value)) {
+				// weak comparison, like checkNotModified of Spring
+				if (candidate.isWildcard() || candidate.tag().equals(etag.tag())) {
+					return true;
+				}
 			}
 		}
+		return false;
 	}
 
-	private MessageDto generateDataItem(int dataIndex) {
-		final MessageDto data = new MessageDto();
-		data.setId(dataIndex);
-		data.setTitle(generateString(5).replace(".", "").replace(",", ""));
-		data.setMessage(generateString(15).replace(".", "").replace(",", ""));
-		return data;
+	/**
+	 * Returns the strong ETag of a response, built from the data set version,
+	 * the request and the requested encoding, as JSON and Smile responses are
+	 * different representations.
+	 */
+	private ETag etag(ServletWebRequest request, MessageQuery query, String resource, int... range) {
+		final StringBuilder etag = new StringBuilder("\"").append(dataVersion).append('-').append(resource);
+		for (int value : range) {
+			etag.append('-').append(value);
+		}
+		if (!query.isAll()) {
+			final String key = String.join("\n", query.sort(), query.descending().toString(), query.titlePrefix(),
+					query.word(), String.valueOf(query.minId()), String.valueOf(query.maxId()));
+			etag.append('-').append(Base64.getUrlEncoder().withoutPadding()
+					.encodeToString(key.getBytes(StandardCharsets.UTF_8)));
+		}
+		final String accept = request.getHeader(HttpHeaders.ACCEPT);
+		etag.append(accept != null && accept.contains(APPLICATION_SMILE_VALUE) ? "-smile\"" : "-json\"");
+		return ETag.parse(etag.toString()).get(0);
 	}
 
-	@SuppressWarnings("deprecation")
-	private String generateString(int numWords) {
-		final StringBuilder sb = new StringBuilder();
+	/**
+	 * Streaming variant of {@link #data(int, int, MessageQuery, ServletWebRequest)}. Items are written to the
+	 * response one at a time as they are read from the store, so memory use per
+	 * request is constant and the page size is not limited by {@code MAX_COUNT}.
+	 * It is limited by {@code restprovider.stream.max-limit} instead, as every
+	 * item of the range is read from the store, which with the stateless and
+	 * mapped storage means generating or decoding it again on every request.
+	 * <p>
+	 * GET http://localhost:8080/data/stream?limit=2000&offset=0
+	 *
+	 * @param limit  how many items should be returned
+	 * @param offset from what index the data should start
+	 */
+	@GetMapping(path = "/data/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> dataStream(int limit, int offset) {
 
-		for (int i = 0; i < numWords; i++) {
-			final String word = words[rand.nextInt(words.length)];
-			sb.append(word);
-			sb.append(" ");
+		log.debug("Backend streaming items {} to {}", offset, offset + limit);
+		if (limit < 0 || offset < 0 || limit > maxStreamLimit || limit + offset > BACKEND.size()) {
+			throw new RuntimeException("indexes outside bounds");
 		}
 
-		return WordUtils.capitalizeFully(sb.toString().trim()) + ".";
+		// a plain StreamingResponseBody would be sent without a content type
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(out -> {
+			try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+				writeItems(json, BACKEND, offset, limit);
+			}
+		});
+	}
+
+	/**
+	 * Writes the given range of items as a JSON array, reading them from the
+	 * store one at a time.
+	 */
+	static void writeItems(JsonGenerator json, MessageStore store, int offset, int limit) throws IOException {
+		json.writeStartArray();
+		for (int i = offset; i < offset + limit; i++) {
+			writeItem(json, store.get(i));
+		}
+		json.writeEndArray();
+	}
+
+	private static void writeItem(JsonGenerator json, MessageDto item) throws IOException {
+		json.writeStartObject();
+		json.writeNumberField("id", item.getId());
+		json.writeStringField("title", item.getTitle());
+		json.writeStringField("message", item.getMessage());
+		json.writeEndObject();
 	}
 
 }
@@ -0,0 +1,38 @@
+package backend.restprovider;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Continuation tokens of the cursor based API of {@link MessageController}.
+ * <p>
+ * A cursor identifies the last item of a page by its id. Clients treat cursors
+ * as opaque strings and only pass them back to continue from that item.
+ */
+final class MessageCursor {
+
+	private static final String VERSION = "v1:";
+
+	private MessageCursor() {
+	}
+
+	static String encode(int lastId) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((VERSION + lastId).getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Returns the id of the last item before the cursor position.
+	 */
+	static int decode(String cursor) {
+		try {
+			final String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+			if (!value.startsWith(VERSION)) {
+				throw new RuntimeException("invalid cursor");
+			}
+			return Integer.parseInt(value.substring(VERSION.length()));
+		} catch (IllegalArgumentException e) {
+			throw new RuntimeException("invalid cursor", e);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package backend.restprovider;
+
+import java.util.SplittableRandom;
+
+import org.apache.commons.lang3.text.WordUtils;
+
+/**
+ * Generates the random lorem ipsum content served by {@link MessageController}.
+ * <p>
+ * Text is produced as indexes into a fixed word dictionary, so that stores can
+ * keep the compact indexes and turn them into strings only when needed.
+ * <p>
+ * Generation is deterministic: the content of a row depends only on the seed
+ * and the row index. Any row can be generated in constant time without
+ * generating the rows before it, and two generators with the same seed produce
+ * the same data set, regardless of the order in which rows are requested.
+ */
+public class MessageGenerator {
+
+	static final int TITLE_WORDS = 5;
+	static final int MESSAGE_WORDS = 15;
+
+	/**
+	 * Random words used for generating data
+	 */
+	private static final String[] words;
+	static {
+
+		final String LOREM_IPSUM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Integer non vulputate elit, a aliquam nisi. Orci varius natoque penatibus et magnis dis parturient montes, nascetur ridiculus mus. Cras sagittis mauris varius dolor varius pulvinar. Integer ac suscipit ligula, non lacinia est. Nulla metus velit, vulputate sed sagittis at, semper quis turpis. Proin in metus vestibulum, luctus mauris nec, ultrices ipsum. Etiam maximus massa porta congue tempor. Pellentesque habitant morbi tristique senectus et netus et malesuada fames ac turpis egestas. Cras ut justo sed purus pretium egestas. Vestibulum ante ipsum primis in faucibus orci luctus et ultrices posuere cubilia Curae; Vestibulum rutrum vitae ex sed rutrum. Donec eget metus eget lacus rhoncus interdum sed sed urna.\n"
+				+ "Cras blandit sapien leo, vel ultrices justo scelerisque posuere. Maecenas ut sollicitudin ante. Ut euismod mauris a laoreet tristique. Donec tristique risus a ornare feugiat. Proin et condimentum risus. Vivamus accumsan, nisl ut interdum interdum, purus massa bibendum enim, in lobortis purus ex ac mi. Aenean tempus odio urna, eu aliquam neque sodales id. Aenean magna ante, ultrices sed vestibulum nec, facilisis eget leo. Duis erat elit, rhoncus ac leo nec, tincidunt facilisis augue.";
+
+		words = LOREM_IPSUM.split(" ");
+	}
+
+	/**
+	 * The words as they appear in the generated text: capitalized, and with
+	 * periods and commas removed. Normalized once, so that generating text is
+	 * only a matter of copying characters.
+	 */
+	private static final char[][] displayWords;
+	private static final int MAX_WORD_LENGTH;
+	static {
+		displayWords = new char[words.length][];
+		int maxWordLength = 0;
+		for (int i = 0; i < words.length; i++) {
+			displayWords[i] = normalize(words[i]).toCharArray();
+			maxWordLength = Math.max(maxWordLength, displayWords[i].length);
+		}
+		MAX_WORD_LENGTH = maxWordLength;
+	}
+
+	private final long seed;
+
+	public MessageGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the size of the word dictionary; word indexes are from 0 to this
+	 * value (exclusive).
+	 */
+	public static int getWordCount() {
+		return words.length;
+	}
+
+	/**
+	 * Returns the word with the given index as it appears in generated text.
+	 */
+	public static String getDisplayWord(int wordIndex) {
+		return new String(displayWords[wordIndex]);
+	}
+
+	/**
+	 * Returns the word with the given index as it is in the dictionary, before
+	 * it's normalized for display.
+	 */
+	static String getRawWord(int wordIndex) {
+		return words[wordIndex];
+	}
+
+	/**
+	 * Writes the word indexes of the row {@code dataIndex}: {@link #TITLE_WORDS}
+	 * title words to {@code titles} from {@code titleOffset}, and
+	 * {@link #MESSAGE_WORDS} message words to {@code messages} from
+	 * {@code messageOffset}.
+	 */
+	public void generateWords(int dataIndex, short[] titles, int titleOffset, short[] messages, int messageOffset) {
+		final SplittableRandom rand = rowRandom(dataIndex);
+
+		for (int i = 0; i < TITLE_WORDS; i++) {
+			titles[titleOffset + i] = (short) rand.nextInt(words.length);
+		}
+		for (int i = 0; i < MESSAGE_WORDS; i++) {
+			messages[messageOffset + i] = (short) rand.nextInt(words.length);
+		}
+	}
+
+	/**
+	 * Returns a private random for the given row, so there is no state shared
+	 * between threads.
+	 */
+	private SplittableRandom rowRandom(int dataIndex) {
+		// MurmurHash3 finalizer, spreads consecutive indexes over the whole range
+		long z = seed + dataIndex * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return new SplittableRandom(z ^ (z >>> 33));
+	}
+
+	/**
+	 * Returns the display text for {@code count} word indexes starting from
+	 * {@code offset}.
+	 */
+	public String toText(short[] wordIndexes, int offset, int count) {
+		final char[] buffer = textBuffer(count);
+		int length = 0;
+		for (int i = 0; i < count; i++) {
+			length = appendWord(buffer, length, i, wordIndexes[offset + i]);
+		}
+		return new String(buffer, 0, length);
+	}
+
+	/**
+	 * Generates the item for the given index.
+	 */
+	public MessageDto generate(int dataIndex) {
+		// same draws as generateWords, but written straight to text
+		final SplittableRandom rand = rowRandom(dataIndex);
+
+		final MessageDto data = new MessageDto();
+		data.setId(dataIndex);
+		data.setTitle(randomText(rand, TITLE_WORDS));
+		data.setMessage(randomText(rand, MESSAGE_WORDS));
+		return data;
+	}
+
+	/**
+	 * Generates only the title of the item for the given index.
+	 */
+	public String generateTitle(int dataIndex) {
+		return randomText(rowRandom(dataIndex), TITLE_WORDS);
+	}
+
+	private String randomText(SplittableRandom rand, int count) {
+		final char[] buffer = textBuffer(count);
+		int length = 0;
+		for (int i = 0; i < count; i++) {
+			length = appendWord(buffer, length, i, rand.nextInt(words.length));
+		}
+		return new String(buffer, 0, length);
+	}
+
+	/**
+	 * Returns a buffer for the text of {@code count} words. A few hundred bytes
+	 * per call, cheaper than keeping one per thread when every request runs on a
+	 * new virtual thread.
+	 */
+	private static char[] textBuffer(int count) {
+		return new char[count * (MAX_WORD_LENGTH + 1)];
+	}
+
+	private static int appendWord(char[] buffer, int length, int position, int wordIndex) {
+		if (position > 0) {
+			buffer[length++] = ' ';
+		}
+		final char[] word = displayWords[wordIndex];
+		System.arraycopy(word, 0, buffer, length, word.length);
+		return length + word.length;
+	}
+
+	/**
+	 * Returns the word the way it's shown in the generated text. Capitalizing and
+	 * removing punctuation works word by word, so the joined display words are
+	 * the same as the joined raw words put through the same steps.
+	 */
+	@SuppressWarnings("deprecation")
+	private static String normalize(String word) {
+		return WordUtils.capitalizeFully(word).replace(".", "").replace(",", "");
+	}
+}
@@ -0,0 +1,343 @@
+package backend.restprovider;
+
+import static backend.restprovider.MessageGenerator.MESSAGE_WORDS;
+import static backend.restprovider.MessageGenerator.TITLE_WORDS;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Secondary indexes for answering sorted and filtered {@link MessageQuery}s
+ * without scanning all items:
+ * <ul>
+ * <li>a title index: all ids sorted by title, ignoring case. Title prefix
+ * filters are a binary search for a range in it.</li>
+ * <li>an inverted word index: for every word of the {@link MessageGenerator}
+ * vocabulary, the sorted ids of the items that contain it.</li>
+ * </ul>
+ * A query reads only the smallest of the candidate sets its filters select:
+ * the items with the word, the titles with the prefix or the range of ids.
+ * The other filters are checked per candidate, and only the matches are
+ * sorted. The indexes are built from the deterministic {@link MessageGenerator} on
+ * the first query that needs them, independently of how the items are stored.
+ * The matching ids of recent queries are cached, up to {@code MAX_CACHED_IDS}
+ * ids in total, so paging through a sorted or filtered result only costs the
+ * size of the page. Queries for a range of ids in id order, in either
+ * direction, need neither the indexes nor the cache.
+ */
+public class MessageIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(MessageIndex.class);
+
+	/**
+	 * Limit of the ids in the cached results, about 4 MB
+	 */
+	private static final int MAX_CACHED_IDS = 1 << 20;
+	private static final int[] NONE = new int[0];
+
+	private final int size;
+	private final MessageGenerator generator;
+
+	private volatile Indexes indexes;
+
+	/**
+	 * Matching ids of recent queries, in ascending sort order.
+	 */
+	private final LinkedHashMap<MessageQuery, int[]> results = new LinkedHashMap<>(16, 0.75f, true);
+	private long cachedIds;
+
+	/**
+	 * @param byTitle   ids sorted by title
+	 * @param titleRank position of every id in {@code byTitle}
+	 * @param postings  sorted ids of the items containing a word, by lower case
+	 *                  word
+	 */
+	private record Indexes(int[] byTitle, int[] titleRank, Map<String, int[]> postings) {
+	}
+
+	public MessageIndex(int size, MessageGenerator generator) {
+		this.size = size;
+		this.generator = generator;
+	}
+
+	/**
+	 * Returns the amount of items matching the query.
+	 */
+	public int count(MessageQuery query) {
+		if (query.isIdRange()) {
+			return Math.max(0, maxId(query) - minId(query) + 1);
+		}
+		return matches(query).length;
+	}
+
+	/**
+	 * Returns the ids of {@code limit} matching items from position
+	 * {@code offset}, in the order of the query.
+	 */
+	public int[] ids(MessageQuery query, int offset, int limit) {
+		if (query.isIdRange()) {
+			final int count = count(query);
+			final int from = Math.min(offset, count);
+			final int[] ids = new int[Math.min(offset + limit, count) - from];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = query.descending() ? maxId(query) - from - i : minId(query) + from + i;
+			}
+			return ids;
+		}
+
+		final int[] matches = matches(query);
+		final int from = Math.min(offset, matches.length);
+		final int to = Math.min(offset + limit, matches.length);
+		if (!query.descending()) {
+			return Arrays.copyOfRange(matches, from, to);
+		}
+
+		final int[] ids = new int[to - from];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = matches[matches.length - 1 - from - i];
+		}
+		return ids;
+	}
+
+	private int[] matches(MessageQuery query) {
+		// the direction doesn't change the matches, only the reading order
+		final MessageQuery key = new MessageQuery(query.sort(), false, query.titlePrefix(), query.word(),
+				query.minId(), query.maxId());
+		synchronized (results) {
+			final int[] cached = results.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		final int[] matches = findMatches(key);
+		if (matches.length <= MAX_CACHED_IDS) {
+			synchronized (results) {
+				cache(key, matches);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Adds a result to the cache, evicting the least recently used results if
+	 * the cache grows over its limit.
+	 */
+	private void cache(MessageQuery key, int[] matches) {
+		final int[] previous = results.put(key, matches);
+		if (previous != null) {
+			cachedIds -= previous.length;
+		}
+		cachedIds += matches.length;
+
+		final Iterator<Map.Entry<MessageQuery, int[]>> eldest = results.entrySet().iterator();
+		while (cachedIds > MAX_CACHED_IDS && eldest.hasNext()) {
+			final Map.Entry<MessageQuery, int[]> entry = eldest.next();
+			if (entry.getKey().equals(key)) {
+				continue;
+			}
+			cachedIds -= entry.getValue().length;
+			eldest.remove();
+		}
+	}
+
+	private int minId(MessageQuery query) {
+		return query.minId() != null ? Math.max(query.minId(), 0) : 0;
+	}
+
+	private int maxId(MessageQuery query) {
+		return query.maxId() != null ? Math.min(query.maxId(), size - 1) : size - 1;
+	}
+
+	private int[] findMatches(MessageQuery query) {
+		final Indexes indexes = getIndexes();
+
+		final int minId = minId(query);
+		final int maxId = maxId(query);
+		if (minId > maxId) {
+			return NONE;
+		}
+
+		// range of title ranks matching the prefix
+		int firstRank = 0;
+		int lastRank = size;
+		if (query.titlePrefix() != null) {
+			firstRank = searchTitle(indexes, query.titlePrefix(), false);
+			lastRank = searchTitle(indexes, query.titlePrefix(), true);
+		}
+		final int fromRank = firstRank;
+		final int toRank = lastRank;
+
+		final int[] posting = query.word() != null ? indexes.postings().getOrDefault(query.word(), NONE) : null;
+
+		// start from the smallest candidate set: the items with the word (in id
+		// order), the titles with the prefix (in title order) or the id range
+		final int[] candidates;
+		final boolean inTitleOrder;
+		final int prefixCount = toRank - fromRank;
+		final int idCount = maxId - minId + 1;
+		if (posting != null && posting.length <= Math.min(prefixCount, idCount)) {
+			candidates = posting;
+			inTitleOrder = false;
+		} else if (prefixCount <= idCount) {
+			candidates = Arrays.copyOfRange(indexes.byTitle(), fromRank, toRank);
+			inTitleOrder = true;
+		} else {
+			candidates = IntStream.rangeClosed(minId, maxId).toArray();
+			inTitleOrder = false;
+		}
+
+		final int[] wordFilter = candidates == posting ? null : posting;
+		final IntPredicate matches = id -> id >= minId && id <= maxId
+				&& indexes.titleRank()[id] >= fromRank && indexes.titleRank()[id] < toRank
+				&& (wordFilter == null || Arrays.binarySearch(wordFilter, id) >= 0);
+		final int[] result = IntStream.of(candidates).filter(matches).toArray();
+
+		// then put the matches, fewer than the candidates, in the sort order
+		if (query.sort().equals("title") && !inTitleOrder) {
+			for (int i = 0; i < result.length; i++) {
+				result[i] = indexes.titleRank()[result[i]];
+			}
+			Arrays.sort(result);
+			for (int i = 0; i < result.length; i++) {
+				result[i] = indexes.byTitle()[result[i]];
+			}
+		} else if (query.sort().equals("id") && inTitleOrder) {
+			Arrays.sort(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Binary search for the first title rank where the title, cut to the length
+	 * of the prefix, is greater than or equal to the prefix ({@code after} is
+	 * false) or greater than the prefix ({@code after} is true).
+	 */
+	private int searchTitle(Indexes indexes, String prefix, boolean after) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			final String title = generator.generateTitle(indexes.byTitle()[middle]);
+			final int comparison = String.CASE_INSENSITIVE_ORDER
+					.compare(title.substring(0, Math.min(title.length(), prefix.length())), prefix);
+			if (comparison < 0 || (after && comparison == 0)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private Indexes getIndexes() {
+		Indexes result = indexes;
+		if (result == null) {
+			synchronized (this) {
+				result = indexes;
+				if (result == null) {
+					result = buildIndexes();
+					indexes = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	private Indexes buildIndexes() {
+		log.info("Building message indexes for {} items", size);
+
+		// title index
+		final String[] titles = new String[size];
+		for (int id = 0; id < size; id++) {
+			titles[id] = generator.generateTitle(id);
+		}
+		final int[] byTitle = IntStream.range(0, size).toArray();
+		sortByTitle(byTitle, titles);
+		final int[] titleRank = new int[size];
+		for (int rank = 0; rank < size; rank++) {
+			titleRank[byTitle[rank]] = rank;
+		}
+
+		// inverted word index; the dictionary contains the same word many times,
+		// so first map every word index to a distinct word
+		final Map<String, Integer> distinctWords = new HashMap<>();
+		final int[] distinctWord = new int[MessageGenerator.getWordCount()];
+		for (int i = 0; i < distinctWord.length; i++) {
+			final String word = MessageGenerator.getDisplayWord(i).toLowerCase(Locale.ROOT);
+			distinctWord[i] = distinctWords.computeIfAbsent(word, w -> distinctWords.size());
+		}
+
+		final int[][] postings = new int[distinctWords.size()][16];
+		final int[] postingSizes = new int[distinctWords.size()];
+		final short[] titleWords = new short[TITLE_WORDS];
+		final short[] messageWords = new short[MESSAGE_WORDS];
+		for (int id = 0; id < size; id++) {
+			generator.generateWords(id, titleWords, 0, messageWords, 0);
+			for (short wordIndex : titleWords) {
+				addPosting(postings, postingSizes, distinctWord[wordIndex], id);
+			}
+			for (short wordIndex : messageWords) {
+				addPosting(postings, postingSizes, distinctWord[wordIndex], id);
+			}
+		}
+
+		final Map<String, int[]> postingsByWord = new HashMap<>();
+		distinctWords.forEach((word, i) -> postingsByWord.put(word, Arrays.copyOf(postings[i], postingSizes[i])));
+
+		return new Indexes(byTitle, titleRank, postingsByWord);
+	}
+
+	/**
+	 * Sorts the ids by their title, ignoring case. A merge sort of the plain
+	 * ids, so that equal titles stay in id order and no id is boxed.
+	 */
+	private static void sortByTitle(int[] ids, String[] titles) {
+		int[] from = ids;
+		int[] to = new int[ids.length];
+		for (int width = 1; width < ids.length; width *= 2) {
+			for (int low = 0; low < ids.length; low += 2 * width) {
+				final int middle = Math.min(low + width, ids.length);
+				final int high = Math.min(low + 2 * width, ids.length);
+				int left = low;
+				int right = middle;
+				for (int i = low; i < high; i++) {
+					if (left < middle && (right >= high
+							|| String.CASE_INSENSITIVE_ORDER.compare(titles[from[left]], titles[from[right]]) <= 0)) {
+						to[i] = from[left++];
+					} else {
+						to[i] = from[right++];
+					}
+				}
+			}
+			final int[] swap = from;
+			from = to;
+			to = swap;
+		}
+		if (from != ids) {
+			System.arraycopy(from, 0, ids, 0, ids.length);
+		}
+	}
+
+	private static void addPosting(int[][] postings, int[] postingSizes, int word, int id) {
+		final int count = postingSizes[word];
+		// ids are added in order, so a repeated word in the same item is the last one
+		if (count > 0 && postings[word][count - 1] == id) {
+			return;
+		}
+		if (count == postings[word].length) {
+			postings[word] = Arrays.copyOf(postings[word], count * 2);
+		}
+		postings[word][count] = id;
+		postingSizes[word] = count + 1;
+	}
+}
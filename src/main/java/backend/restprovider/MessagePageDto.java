@@ -0,0 +1,33 @@
+package backend.restprovider;
+
+import java.util.List;
+
+/**
+ * A page of items returned by the cursor based API of
+ * {@link MessageController}.
+ */
+public class MessagePageDto {
+
+	private List<MessageDto> items;
+	private String next;
+
+	public List<MessageDto> getItems() {
+		return items;
+	}
+
+	public void setItems(List<MessageDto> items) {
+		this.items = items;
+	}
+
+	/**
+	 * Returns the cursor for fetching the page after this one, or {@code null}
+	 * if this is the last page.
+	 */
+	public String getNext() {
+		return next;
+	}
+
+	public void setNext(String next) {
+		this.next = next;
+	}
+}
@@ -0,0 +1,57 @@
+package backend.restprovider;
+
+import java.util.Locale;
+
+/**
+ * Sort order and filters for reading items from {@link MessageController}.
+ *
+ * @param sort        property to sort by, {@code id} or {@code title}
+ * @param descending  whether to sort in descending order; {@code null} for
+ *                    ascending
+ * @param titlePrefix only items whose title starts with this, ignoring case;
+ *                    {@code null} for no filter
+ * @param word        only items whose title or message contains this word,
+ *                    ignoring case; {@code null} for no filter
+ * @param minId       smallest included id, or {@code null} for no limit
+ * @param maxId       largest included id, or {@code null} for no limit
+ */
+public record MessageQuery(String sort, Boolean descending, String titlePrefix, String word, Integer minId,
+		Integer maxId) {
+
+	/**
+	 * All items in id order.
+	 */
+	public static final MessageQuery ALL = new MessageQuery(null, false, null, null, null, null);
+
+	public MessageQuery {
+		if (sort == null || sort.isBlank()) {
+			sort = "id";
+		}
+		if (!sort.equals("id") && !sort.equals("title")) {
+			throw new RuntimeException("unknown sort property " + sort);
+		}
+		if (descending == null) {
+			descending = false;
+		}
+		if (titlePrefix != null && titlePrefix.isBlank()) {
+			titlePrefix = null;
+		}
+		word = word == null || word.isBlank() ? null : word.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Returns whether this query returns all items in id order, which the store
+	 * can answer directly without an index.
+	 */
+	public boolean isAll() {
+		return equals(ALL);
+	}
+
+	/**
+	 * Returns whether this query selects a range of ids in id order, ascending
+	 * or descending, which needs no index.
+	 */
+	public boolean isIdRange() {
+		return sort.equals("id") && titlePrefix == null && word == null;
+	}
+}
@@ -0,0 +1,26 @@
+package backend.restprovider;
+
+/**
+ * A range of items requested from the batch API of {@link MessageController}.
+ */
+public class MessageRangeDto {
+
+	private int offset;
+	private int limit;
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public void setOffset(int offset) {
+		this.offset = offset;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+}
@@ -0,0 +1,56 @@
+package backend.restprovider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Storage engine behind {@link MessageController}. Replacement for a DB.
+ * <p>
+ * Implementations generate items lazily on first access, and must be safe to
+ * call from any number of request threads at once. The content of an item
+ * depends only on its index and the seed of the {@link MessageGenerator}: every
+ * read of an index returns an equal item, whether the store keeps the items it
+ * generated or generates them again on every read.
+ */
+public interface MessageStore {
+
+	/**
+	 * Returns the total amount of items in this store.
+	 */
+	int size();
+
+	/**
+	 * Returns the item at the given index, generating it first if needed.
+	 *
+	 * @param index index of the item, from 0 (inclusive) to {@link #size()}
+	 *              (exclusive)
+	 */
+	MessageDto get(int index);
+
+	/**
+	 * Returns how many items this store has generated so far, for monitoring.
+	 * Stores that keep the generated items count each item once; stores that
+	 * keep nothing count every read.
+	 */
+	long getGeneratedCount();
+
+	/**
+	 * Returns {@code limit} items starting from {@code offset}, generating the
+	 * missing ones first.
+	 */
+	default List<MessageDto> getRange(int offset, int limit) {
+		final List<MessageDto> list = new ArrayList<>(limit);
+		for (int i = 0; i < limit; i++) {
+			list.add(get(offset + i));
+		}
+		return list;
+	}
+
+	/**
+	 * Function that creates the item for a given index.
+	 */
+	@FunctionalInterface
+	interface Generator extends IntFunction<MessageDto> {
+	}
+}
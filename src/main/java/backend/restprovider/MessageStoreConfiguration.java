@@ -0,0 +1,74 @@
+package backend.restprovider;
+
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Selects the {@link MessageStore} used by {@link MessageController}.
+ * <p>
+ * The storage mode is set with the {@code restprovider.storage} property:
+ * <ul>
+ * <li>{@code chunked} (default): generated {@link MessageDto} objects are
+ * kept in memory, see {@link ChunkedMessageStore}</li>
+ * <li>{@code columnar}: only word indexes are kept in memory, see
+ * {@link ColumnarMessageStore}</li>
+ * <li>{@code stateless}: nothing is kept in memory, items are generated on
+ * every read, see {@link StatelessMessageStore}</li>
+ * <li>{@code mapped}: generated items are kept in the memory-mapped file set
+ * with {@code restprovider.mapped.file}, outside the heap and across
+ * restarts, see {@link MappedMessageStore}</li>
+ * </ul>
+ * The amount of items is set with {@code restprovider.size}, and the seed of
+ * the generated content with {@code restprovider.seed}.
+ * <p>
+ * The size of the store and the amount of items it has generated are published
+ * as the {@code restprovider.store.size} and
+ * {@code restprovider.store.generated} metrics. The latency of the REST API
+ * itself is in the {@code http.server.requests} metrics of Spring Boot.
+ */
+@Configuration
+public class MessageStoreConfiguration {
+
+	@Bean
+	public MessageGenerator messageGenerator(@Value("${restprovider.seed:0}") long seed) {
+		return new MessageGenerator(seed);
+	}
+
+	@Bean
+	public MessageStore messageStore(MessageGenerator generator,
+			@Value("${restprovider.storage:chunked}") String storage,
+			@Value("${restprovider.size:10000}") int size,
+			@Value("${restprovider.mapped.file:${java.io.tmpdir}/restprovider-messages.dat}") Path mappedFile) {
+		return switch (storage) {
+		case "chunked" -> new ChunkedMessageStore(size, generator::generate);
+		case "columnar" -> new ColumnarMessageStore(size, generator);
+		case "stateless" -> new StatelessMessageStore(size, generator);
+		case "mapped" -> new MappedMessageStore(size, generator, mappedFile);
+		default -> throw new IllegalArgumentException("Unknown restprovider.storage: " + storage);
+		};
+	}
+
+	@Bean
+	public MeterBinder messageStoreMetrics(MessageStore store,
+			@Value("${restprovider.storage:chunked}") String storage) {
+		return registry -> {
+			Gauge.builder("restprovider.store.size", store, MessageStore::size).tag("storage", storage)
+					.baseUnit("items").description("Items in the message store").register(registry);
+			FunctionCounter.builder("restprovider.store.generated", store, MessageStore::getGeneratedCount)
+					.tag("storage", storage).baseUnit("items")
+					.description("Items generated by the message store").register(registry);
+		};
+	}
+
+	@Bean
+	public MessageIndex messageIndex(MessageStore store, MessageGenerator generator) {
+		return new MessageIndex(store.size(), generator);
+	}
+}
@@ -0,0 +1,69 @@
+package backend.restprovider;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive variant of {@link MessageController}, serving the same data from
+ * the same {@link MessageStore}.
+ * <p>
+ * The application runs on the servlet stack (Vaadin requires it), so these
+ * handlers are served by Spring MVC's reactive return value support: the
+ * request thread is released as soon as the handler returns, and items are
+ * generated on the parallel scheduler only as fast as the client consumes them.
+ * With {@code Accept: application/x-ndjson} every item is written as its own
+ * line as soon as it is available.
+ */
+@RestController
+@RequestMapping("/reactive")
+public class ReactiveMessageController {
+
+	private final MessageStore BACKEND;
+
+	/**
+	 * Maximum amount of items of one {@code /reactive/data} request, see
+	 * {@link MessageController#dataStream(int, int)}
+	 */
+	private final int maxLimit;
+
+	public ReactiveMessageController(MessageStore backend,
+			@Value("${restprovider.stream.max-limit:2000}") int maxLimit) {
+		BACKEND = backend;
+		this.maxLimit = maxLimit;
+	}
+
+	/**
+	 * GET http://localhost:8080/reactive/count
+	 */
+	@GetMapping("/count")
+	public Mono<Integer> count() {
+		return Mono.just(BACKEND.size());
+	}
+
+	/**
+	 * GET http://localhost:8080/reactive/data?limit=50&offset=400
+	 * <p>
+	 * At most {@code restprovider.stream.max-limit} items are returned at once.
+	 *
+	 * @param limit  how many items should be returned
+	 * @param offset from what index the data should start
+	 */
+	@GetMapping(path = "/data", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	public Flux<MessageDto> data(int limit, int offset) {
+
+		if (limit < 0 || offset < 0 || limit > maxLimit || limit + offset > BACKEND.size()) {
+			throw new RuntimeException("indexes outside bounds");
+		}
+
+		// Flux.range emits only what has been requested downstream, so a slow
+		// client does not make us generate items ahead of it
+		return Flux.range(offset, limit).map(BACKEND::get).subscribeOn(Schedulers.parallel());
+	}
+}
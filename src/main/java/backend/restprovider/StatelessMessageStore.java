@@ -0,0 +1,39 @@
+package backend.restprovider;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MessageStore} that does not store anything. Because
+ * {@link MessageGenerator} is deterministic, every read simply generates the
+ * requested items again; memory use is independent of the data set size.
+ */
+public class StatelessMessageStore implements MessageStore {
+
+	private final int size;
+	private final MessageGenerator generator;
+	private final LongAdder generatedItems = new LongAdder();
+
+	public StatelessMessageStore(int size, MessageGenerator generator) {
+		this.size = size;
+		this.generator = generator;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public MessageDto get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		generatedItems.increment();
+		return generator.generate(index);
+	}
+
+	@Override
+	public long getGeneratedCount() {
+		return generatedItems.sum();
+	}
+}
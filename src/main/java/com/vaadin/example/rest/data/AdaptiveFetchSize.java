@@ -0,0 +1,146 @@
+package com.vaadin.example.rest.data;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * Chooses how many items to fetch from the upstream in one request, from the
+ * measured latency and row size of the previous requests.
+ * <p>
+ * Every request costs a fixed overhead (the round trip, request handling) plus
+ * a transfer time that grows with the amount of items. Both are estimated with
+ * a least squares fit of the recent latencies against the request sizes. The
+ * fetch size is then the largest amount of items whose transfer time stays
+ * within the target latency, after the overhead; a slow, distant upstream gets
+ * requests big enough that their transfer time at least matches the overhead,
+ * so it is not paid over and over for small requests. Requests are also kept
+ * under a maximum response size, estimated from the length of the rows
+ * received so far.
+ * <p>
+ * While the requests have been too similar in size to tell the overhead and
+ * the transfer time apart, the size grows by a block after every request
+ * faster than half the target latency, and shrinks by a block after every
+ * request slower than the target.
+ * <p>
+ * The size is always a whole number of blocks, between one block and the
+ * maximum the upstream allows in one request, so requests start and end on
+ * the block boundaries of the {@link PageCache}.
+ */
+@SuppressWarnings("serial")
+public class AdaptiveFetchSize implements Serializable {
+
+	/**
+	 * Weight of the latest request in the estimates
+	 */
+	private static final double ALPHA = 0.1;
+	private static final int MIN_SAMPLES = 5;
+	private static final int INITIAL_BLOCKS = 4;
+
+	private final int blockSize;
+	private final int maxItems;
+	private final long targetNanos;
+	private final long maxBytes;
+
+	// exponentially weighted sums of the request sizes (x) and latencies (y)
+	private double weight;
+	private double sumX;
+	private double sumY;
+	private double sumXX;
+	private double sumXY;
+	private double bytesPerItem;
+	private long samples;
+
+	private int fetchSize;
+
+	/**
+	 * @param blockSize     the unit of the fetch size
+	 * @param maxItems      maximum amount of items the upstream returns in one
+	 *                      request
+	 * @param targetLatency latency a request should stay within
+	 * @param maxBytes      maximum size of a response
+	 */
+	public AdaptiveFetchSize(int blockSize, int maxItems, Duration targetLatency, long maxBytes) {
+		this.blockSize = blockSize;
+		this.maxItems = Math.max(blockSize, maxItems - maxItems % blockSize);
+		this.targetNanos = targetLatency.toNanos();
+		this.maxBytes = maxBytes;
+		fetchSize = clamp(INITIAL_BLOCKS * blockSize);
+	}
+
+	/**
+	 * Returns the amount of items to fetch in one request, a multiple of the
+	 * block size.
+	 */
+	public synchronized int getFetchSize() {
+		return fetchSize;
+	}
+
+	/**
+	 * Returns the amount of blocks to fetch in one request.
+	 */
+	public synchronized int getFetchBlocks() {
+		return fetchSize / blockSize;
+	}
+
+	/**
+	 * Records a request that reached the upstream, and updates the fetch size.
+	 * Responses served from a cache must not be recorded, as their latency says
+	 * nothing about the upstream.
+	 *
+	 * @param items amount of items received
+	 * @param nanos latency of the request
+	 * @param bytes approximate size of the items
+	 */
+	public synchronized void record(int items, long nanos, long bytes) {
+		if (items <= 0) {
+			return;
+		}
+		samples++;
+		weight = decay(weight, 1);
+		sumX = decay(sumX, items);
+		sumY = decay(sumY, nanos);
+		sumXX = decay(sumXX, (double) items * items);
+		sumXY = decay(sumXY, (double) items * nanos);
+		bytesPerItem = samples == 1 ? (double) bytes / items : decay(bytesPerItem, (double) bytes / items);
+
+		fetchSize = clamp(estimate(nanos));
+	}
+
+	private static double decay(double average, double value) {
+		return average * (1 - ALPHA) + value * ALPHA;
+	}
+
+	private int estimate(long lastNanos) {
+		final double meanX = sumX / weight;
+		final double meanY = sumY / weight;
+		final double varianceX = sumXX / weight - meanX * meanX;
+		if (samples < MIN_SAMPLES || varianceX < 0.01 * meanX * meanX) {
+			// can't tell overhead and transfer time apart yet, probe instead
+			if (lastNanos < targetNanos / 2) {
+				return fetchSize + blockSize;
+			}
+			return lastNanos > targetNanos ? fetchSize - blockSize : fetchSize;
+		}
+
+		final double nanosPerItem = Math.max(0, (sumXY / weight - meanX * meanY) / varianceX);
+		final double overheadNanos = Math.max(0, meanY - nanosPerItem * meanX);
+		final double transferBudget = Math.max(targetNanos - overheadNanos, overheadNanos);
+		double items = nanosPerItem > 0 ? transferBudget / nanosPerItem : maxItems;
+		if (bytesPerItem > 0) {
+			items = Math.min(items, maxBytes / bytesPerItem);
+		}
+		return (int) Math.min(items, maxItems);
+	}
+
+	/**
+	 * Rounds down to whole blocks, within one block and the maximum.
+	 */
+	private int clamp(int items) {
+		return Math.max(blockSize, Math.min(maxItems, items - items % blockSize));
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d items per request, %d samples", fetchSize, samples);
+	}
+}
@@ -1,15 +1,37 @@
 package com.vaadin.example.rest.data;
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClient.RequestHeadersSpec;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 /**
  * Example Spring service that connects to a REST API asynchronously.
  * <p>
+ * Every operation of {@link RestClientService} has a non-blocking counterpart
+ * here, returning a {@link Mono}. Nothing is fetched before the {@code Mono} is
+ * subscribed to, and disposing the subscription cancels the request, for
+ * example when the user navigates away from the view that started it. Errors,
+ * including a request taking longer than {@code rest.async.timeout}, are
+ * signalled to the subscriber. Use {@code toFuture()} where a
+ * {@code CompletableFuture} is more convenient.
+ * <p>
+ * Concurrent identical requests share one upstream request with
+ * {@link SingleFlight#executeMono}, which is cancelled only when all
+ * subscribers have cancelled.
  *
  * @see RestClientService
  */
@@ -26,33 +48,162 @@ public class AsyncRestClientService implements Serializable {
         void operationFinished(T results);
     }
 
+    private static final Logger log = LoggerFactory.getLogger(AsyncRestClientService.class);
+
+    private final WebClient jsonplaceholderClient;
+    private final WebClient localClient;
+    private final MediaType localMediaType;
+    private final Duration timeout;
+    private final ClientMetrics metrics;
+
+    // Concurrent callers share one request, see SingleFlight
+    private final SingleFlight<String, List<CommentDTO>> commentsFlight = new SingleFlight<>();
+    private final SingleFlight<String, List<JsonNode>> postsFlight = new SingleFlight<>();
+    private final SingleFlight<MessageFilter, Integer> countFlight = new SingleFlight<>();
+
+    /**
+     * @param webClientBuilder builder auto-configured by Spring Boot, using the
+     *                         shared connection pool from
+     *                         {@link HttpClientConfiguration}
+     * @param responseCache    HTTP cache shared with {@link RestClientService}
+     * @param metrics          records the requests that reach the upstreams
+     * @param jsonplaceholderGuard guard of the upstream, shared with
+     *                         {@link RestClientService}
+     * @param localGuard       guard of the upstream, shared with
+     *                         {@link RestClientService}
+     */
+    public AsyncRestClientService(WebClient.Builder webClientBuilder, HttpResponseCache responseCache,
+            ClientMetrics metrics, @Qualifier("jsonplaceholderGuard") UpstreamGuard jsonplaceholderGuard,
+            @Qualifier("localGuard") UpstreamGuard localGuard,
+            @Value("${rest.upstream.jsonplaceholder.url:https://jsonplaceholder.typicode.com}") String jsonplaceholderUrl,
+            @Value("${rest.upstream.local.url:http://localhost:${server.port}}") String localUrl,
+            @Value("${rest.local.media-type:application/x-jackson-smile}") MediaType localMediaType,
+            @Value("${rest.async.timeout:10s}") Duration timeout) {
+        // same order as the interceptors of RestClientService: cache, metrics,
+        // then the guard, which re-sends retries from there on
+        jsonplaceholderClient = webClientBuilder.clone().baseUrl(jsonplaceholderUrl)
+                .filter(responseCache.filter()).filter(metrics.filter()).filter(jsonplaceholderGuard.filter())
+                .build();
+        localClient = webClientBuilder.clone().baseUrl(localUrl)
+                .filter(responseCache.filter()).filter(metrics.filter()).filter(localGuard.filter()).build();
+        this.localMediaType = localMediaType;
+        this.timeout = timeout;
+        this.metrics = metrics;
+    }
+
     /**
      * Returns parsed {@link CommentDTO} objects from the REST service,
-     * asynchronously.
+     * asynchronously. If the comments are already being fetched for another
+     * caller, the callback is called with the result of that fetch instead.
+     * <p>
+     * The callback is not called if the fetch fails; use
+     * {@link #getAllComments()} to handle errors and to cancel the fetch.
      */
     public void getAllCommentsAsync(AsyncRestCallback<List<CommentDTO>> callback) {
 
-        System.out.println("Setting up fetching all Comment objects through REST..");
+        log.info("Setting up fetching all Comment objects through REST..");
 
-        // Configure fetch as normal
-        RequestHeadersSpec<?> spec = WebClient.create().get().uri("https://jsonplaceholder.typicode.com/comments");
-
-        // But instead of 'block', do 'subscribe'. This means the fetch will run on a
-        // separate thread and notify us when it's ready by calling our lambda
-        // operation.
-        spec.retrieve().toEntityList(CommentDTO.class).subscribe(result -> {
+        getAllComments().subscribe(comments -> {
 
             // This code block is run whenever the results are back
 
-            // get results as usual
-            final List<CommentDTO> comments = result.getBody();
-
-            System.out.println(String.format("...received %d items.", comments.size()));
-
             // call the ui with the data
             callback.operationFinished(comments);
-        });
+        }, error -> log.warn("Fetching comments failed: {}", error.toString()));
+    }
+
+    /**
+     * Returns parsed {@link CommentDTO} objects from the REST service, without
+     * blocking. See {@link RestClientService#getAllComments()}.
+     */
+    public Mono<List<CommentDTO>> getAllComments() {
+        return commentsFlight.executeMono("comments", () -> {
+
+            // Configure fetch as normal
+            RequestHeadersSpec<?> spec = jsonplaceholderClient.get().uri("comments");
+
+            // But instead of 'block', return the Mono. The fetch runs when it's
+            // subscribed to, and the subscriber is notified when it's ready.
+            return spec.retrieve().bodyToFlux(CommentDTO.class).collectList()
+                    .doOnNext(comments -> {
+                        log.info("...received {} items.", comments.size());
+                        metrics.recordItems("comments", comments.size());
+                    });
+        }).timeout(timeout);
+    }
 
+    /**
+     * Returns parsed {@link CommentDTO} objects from the REST service one at a
+     * time, as they are parsed from the response. The first comments are
+     * available as soon as the beginning of the response has arrived, however
+     * large the response is.
+     * <p>
+     * Unlike {@link #getAllComments()}, every subscriber makes its own request;
+     * repeated requests are answered by the HTTP cache.
+     */
+    public Flux<CommentDTO> streamAllComments() {
+
+        // A Flux of a JSON array is decoded element by element while the
+        // response is being received
+        return jsonplaceholderClient.get().uri("comments").retrieve().bodyToFlux(CommentDTO.class)
+                .timeout(timeout);
+    }
+
+    /**
+     * Returns non-parsed JSON response objects from the REST service, without
+     * blocking. See {@link RestClientService#getAllPostRows()} for a compact
+     * form of the same objects.
+     */
+    public Mono<List<JsonNode>> getAllPosts() {
+        return postsFlight.executeMono("posts",
+                () -> jsonplaceholderClient.get().uri("posts").retrieve().bodyToFlux(JsonNode.class).collectList()
+                        .doOnNext(posts -> metrics.recordItems("posts", posts.size())))
+                .timeout(timeout);
+    }
+
+    /**
+     * Returns the amount of data items matching the filter, without blocking.
+     * See {@link RestClientService#count(MessageFilter)}.
+     */
+    public Mono<Integer> count(MessageFilter filter) {
+        return countFlight.executeMono(filter, () -> localClient.get()
+                .uri(uriBuilder -> RestClientService.withFilter(uriBuilder.path("count"), filter).build())
+                .retrieve().bodyToMono(Integer.class)).timeout(timeout);
+    }
+
+    /**
+     * Fetches the specified amount of sorted and filtered data items starting
+     * from index 'offset', without blocking. See
+     * {@link RestClientService#fetchData(int, int, MessageFilter, ReadAhead)};
+     * unlike it, this makes one request per call and leaves caching to the
+     * HTTP cache.
+     */
+    public Mono<List<MessageDTO>> fetchData(int limit, int offset, MessageFilter filter) {
+        return localClient.get()
+                .uri(uriBuilder -> RestClientService.withFilter(uriBuilder.path("data"), filter)
+                        .queryParam("limit", limit)
+                        .queryParam("offset", offset)
+                        .build())
+                .accept(localMediaType)
+                .retrieve().bodyToFlux(MessageDTO.class).collectList()
+                .doOnNext(items -> metrics.recordItems("data", items.size()))
+                .timeout(timeout);
+    }
+
+    /**
+     * Fetches a page of data items after the given cursor, without blocking.
+     * See {@link RestClientService#fetchPage(String, int, int)}.
+     */
+    public Mono<MessagePageDTO> fetchPage(String cursor, int offset, int limit) {
+        return localClient.get().uri(uriBuilder -> {
+            uriBuilder.path("data/cursor").queryParam("limit", limit);
+            if (cursor != null) {
+                uriBuilder.queryParam("after", cursor);
+            } else {
+                uriBuilder.queryParam("offset", offset);
+            }
+            return uriBuilder.build();
+        }).accept(localMediaType).retrieve().bodyToMono(MessagePageDTO.class).timeout(timeout);
     }
 
 }
@@ -0,0 +1,297 @@
+package com.vaadin.example.rest.data;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer metrics of the REST clients, published by Spring Boot Actuator,
+ * for example in Prometheus format at {@code /actuator/prometheus}:
+ * <ul>
+ * <li>{@code rest.client.upstream}: time of each request to an upstream, until
+ * its response body has been read, by {@code host}, {@code endpoint} and
+ * {@code status}</li>
+ * <li>{@code rest.client.payload}: size of each response body read from an
+ * upstream</li>
+ * <li>{@code rest.client.items}: amount of items in each response</li>
+ * <li>{@code cache.gets}, {@code cache.evictions} and {@code cache.size} of the
+ * {@link PageCache} and {@link HttpResponseCache}, tagged with the
+ * {@code cache} name, following the conventions of Micrometer's own cache
+ * metrics</li>
+ * <li>{@code cache.stale}: responses the {@link HttpResponseCache} served
+ * stale because the upstream failed</li>
+ * <li>{@code rest.client.batch.ranges} and {@code rest.client.batch.requests}
+ * of the {@link RangeBatcher}</li>
+ * <li>{@code rest.client.fetch.size}: items fetched in one request, see
+ * {@link AdaptiveFetchSize}</li>
+ * <li>{@code rest.client.guard.rejections}, {@code rest.client.guard.retries},
+ * {@code rest.client.guard.in.flight} and {@code rest.client.guard.circuit} (0
+ * closed, 1 open, 2 half open) of the {@link UpstreamGuard} of each
+ * {@code upstream}</li>
+ * <li>{@code ui.grid.fetch}: time the Grid of each {@code view} waits for its
+ * data</li>
+ * </ul>
+ * Responses served by the {@link HttpResponseCache} never reach the upstream,
+ * so they are not included in the upstream metrics. Requests the
+ * {@link UpstreamGuard} didn't send are recorded with the status
+ * {@code REJECTED}, and retries are not recorded separately.
+ */
+@SuppressWarnings("serial")
+@Component
+public class ClientMetrics implements Serializable {
+
+	private final MeterRegistry registry;
+
+	public ClientMetrics(MeterRegistry registry, HttpResponseCache responseCache, List<UpstreamGuard> guards) {
+		this.registry = registry;
+
+		cacheGets("http", "hit", responseCache, HttpResponseCache::getHitCount);
+		cacheGets("http", "revalidated", responseCache, HttpResponseCache::getRevalidationCount);
+		cacheGets("http", "miss", responseCache, HttpResponseCache::getMissCount);
+		Gauge.builder("cache.size", responseCache, HttpResponseCache::getResponseCount).tag("cache", "http")
+				.description("The number of entries in this cache").register(registry);
+		Gauge.builder("cache.size.bytes", responseCache, HttpResponseCache::getCachedBytes).tag("cache", "http")
+				.baseUnit("bytes").description("The total size of the entries in this cache").register(registry);
+		FunctionCounter.builder("cache.stale", responseCache, HttpResponseCache::getStaleCount).tag("cache", "http")
+				.description("Stale responses served because the upstream failed").register(registry);
+
+		guards.forEach(this::bindUpstreamGuard);
+	}
+
+	private void bindUpstreamGuard(UpstreamGuard guard) {
+		final String upstream = guard.getName();
+		FunctionCounter.builder("rest.client.guard.rejections", guard, UpstreamGuard::getBulkheadRejectionCount)
+				.tag("upstream", upstream).tag("reason", "bulkhead")
+				.description("Requests not sent to the upstream").register(registry);
+		FunctionCounter.builder("rest.client.guard.rejections", guard, UpstreamGuard::getCircuitRejectionCount)
+				.tag("upstream", upstream).tag("reason", "circuit")
+				.description("Requests not sent to the upstream").register(registry);
+		FunctionCounter.builder("rest.client.guard.retries", guard, UpstreamGuard::getRetryCount)
+				.tag("upstream", upstream).description("Requests to the upstream that were retried")
+				.register(registry);
+		Gauge.builder("rest.client.guard.in.flight", guard, UpstreamGuard::getInFlightCount)
+				.tag("upstream", upstream).description("Requests to the upstream waiting for a response")
+				.register(registry);
+		Gauge.builder("rest.client.guard.circuit", guard, g -> g.getState().ordinal()).tag("upstream", upstream)
+				.description("State of the circuit breaker: 0 closed, 1 open, 2 half open").register(registry);
+	}
+
+	/**
+	 * Returns an interceptor that records the upstream metrics of a
+	 * {@code RestClient}. Register it after the {@link HttpResponseCache}
+	 * interceptor, so that only requests that reach the upstream are recorded.
+	 */
+	public ClientHttpRequestInterceptor interceptor() {
+		return (request, body, execution) -> {
+			final Timer.Sample sample = Timer.start(registry);
+			final ClientHttpResponse response;
+			try {
+				response = execution.execute(request, body);
+			} catch (IOException | RuntimeException e) {
+				sample.stop(upstreamTimer(request.getURI(), errorStatus(e)));
+				throw e;
+			}
+			return new MeteredResponse(response, sample, request.getURI());
+		};
+	}
+
+	/**
+	 * Returns a filter that records the upstream metrics of a {@code WebClient}.
+	 * Register it after the {@link HttpResponseCache} filter, so that only
+	 * requests that reach the upstream are recorded.
+	 */
+	public ExchangeFilterFunction filter() {
+		return (request, next) -> {
+			final Timer.Sample sample = Timer.start(registry);
+			return next.exchange(request)
+					.doOnError(e -> sample.stop(upstreamTimer(request.url(), errorStatus(e))))
+					.map(response -> {
+						final AtomicLong bytes = new AtomicLong();
+						final AtomicBoolean recorded = new AtomicBoolean();
+						return response.mutate().body(body -> body
+								.doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()))
+								.doFinally(signal -> {
+									if (recorded.compareAndSet(false, true)) {
+										recordUpstream(sample, request.url(), response.statusCode(), bytes.get());
+									}
+								})).build();
+					});
+		};
+	}
+
+	/**
+	 * Records the amount of items returned by an endpoint.
+	 */
+	public void recordItems(String endpoint, int items) {
+		DistributionSummary.builder("rest.client.items").tag("endpoint", endpoint)
+				.description("Items in the responses of the endpoint").register(registry).record(items);
+	}
+
+	/**
+	 * Publishes the hit, miss and eviction counts and the size of a page cache.
+	 */
+	public void bindPageCache(String name, PageCache<?, ?> cache) {
+		cacheGets(name, "hit", cache, PageCache::getHitCount);
+		cacheGets(name, "miss", cache, PageCache::getMissCount);
+		FunctionCounter.builder("cache.evictions", cache, PageCache::getEvictionCount).tag("cache", name)
+				.description("The number of times the cache was evicted").register(registry);
+		Gauge.builder("cache.size", cache, PageCache::getCachedItemCount).tag("cache", name)
+				.description("The number of items in this cache").register(registry);
+	}
+
+	/**
+	 * Publishes how many ranges a range batcher has fetched in how many
+	 * requests.
+	 */
+	public void bindRangeBatcher(RangeBatcher<?, ?> batcher) {
+		FunctionCounter.builder("rest.client.batch.ranges", batcher, RangeBatcher::getRequestedRangeCount)
+				.description("Ranges requested from the batcher").register(registry);
+		FunctionCounter.builder("rest.client.batch.requests", batcher, RangeBatcher::getSentBatchCount)
+				.description("Batch requests sent").register(registry);
+	}
+
+	/**
+	 * Publishes the current adaptive fetch size.
+	 */
+	public void bindFetchSize(AdaptiveFetchSize fetchSize) {
+		Gauge.builder("rest.client.fetch.size", fetchSize, AdaptiveFetchSize::getFetchSize)
+				.description("Items fetched in one request").register(registry);
+	}
+
+	/**
+	 * Runs a data fetch of the Grid of a view, recording how long it takes.
+	 */
+	public <T> T timeGridFetch(String view, Supplier<T> fetch) {
+		return Timer.builder("ui.grid.fetch").tag("view", view).description("Time the Grid waits for its data")
+				.register(registry).record(fetch);
+	}
+
+	private <T> void cacheGets(String name, String result, T cache, ToDoubleFunction<T> count) {
+		FunctionCounter.builder("cache.gets", cache, count).tag("cache", name).tag("result", result)
+				.description("The number of times cache lookup methods have returned a cached (hit) or uncached (miss) value")
+				.register(registry);
+	}
+
+	private Timer upstreamTimer(URI uri, String status) {
+		return Timer.builder("rest.client.upstream").tag("host", String.valueOf(uri.getHost()))
+				.tag("endpoint", endpoint(uri)).tag("status", status)
+				.description("Requests to the upstream REST APIs, until the response has been read")
+				.register(registry);
+	}
+
+	private static String errorStatus(Throwable e) {
+		return e instanceof UpstreamGuard.UnavailableException ? "REJECTED" : "IO_ERROR";
+	}
+
+	private void recordUpstream(Timer.Sample sample, URI uri, HttpStatusCode status, long bytes) {
+		sample.stop(upstreamTimer(uri, String.valueOf(status.value())));
+		DistributionSummary.builder("rest.client.payload").tag("host", String.valueOf(uri.getHost()))
+				.tag("endpoint", endpoint(uri)).baseUnit("bytes")
+				.description("Size of the response bodies read from the upstream REST APIs").register(registry)
+				.record(bytes);
+	}
+
+	/**
+	 * The path of the endpoint, without the query, which would give every
+	 * request its own time series.
+	 */
+	private static String endpoint(URI uri) {
+		final String path = uri.getPath();
+		return path == null || path.length() <= 1 ? "/" : path.substring(1);
+	}
+
+	/**
+	 * Counts the bytes read from the body, and records the upstream metrics
+	 * when the response is closed.
+	 */
+	private final class MeteredResponse implements ClientHttpResponse {
+
+		private final ClientHttpResponse response;
+		private final Timer.Sample sample;
+		private final URI uri;
+		private long bytes;
+		private InputStream body;
+		private boolean recorded;
+
+		private MeteredResponse(ClientHttpResponse response, Timer.Sample sample, URI uri) {
+			this.response = response;
+			this.sample = sample;
+			this.uri = uri;
+		}
+
+		@Override
+		public HttpStatusCode getStatusCode() throws IOException {
+			return response.getStatusCode();
+		}
+
+		@Override
+		public String getStatusText() throws IOException {
+			return response.getStatusText();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return response.getHeaders();
+		}
+
+		@Override
+		public InputStream getBody() throws IOException {
+			if (body == null) {
+				body = new FilterInputStream(response.getBody()) {
+
+					@Override
+					public int read() throws IOException {
+						final int b = super.read();
+						if (b >= 0) {
+							bytes++;
+						}
+						return b;
+					}
+
+					@Override
+					public int read(byte[] buffer, int offset, int length) throws IOException {
+						final int read = super.read(buffer, offset, length);
+						if (read > 0) {
+							bytes += read;
+						}
+						return read;
+					}
+				};
+			}
+			return body;
+		}
+
+		@Override
+		public void close() {
+			if (!recorded) {
+				recorded = true;
+				try {
+					recordUpstream(sample, uri, response.getStatusCode(), bytes);
+				} catch (IOException e) {
+					sample.stop(upstreamTimer(uri, "IO_ERROR"));
+				}
+			}
+			response.close();
+		}
+	}
+}
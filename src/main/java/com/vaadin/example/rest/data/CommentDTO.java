@@ -2,54 +2,11 @@ package com.vaadin.example.rest.data;
 
 /**
  * DTO class for example 1, fetching using a DTO.
+ * <p>
+ * An immutable record, so that one instance can safely be shown by all
+ * sessions. Jackson and the Vaadin Grid both support records like JavaBeans.
  */
-public class CommentDTO {
-
-	private int postId;
-	private int id;
-	private String name;
-	private String email;
-	private String body;
-
-	public int getPostId() {
-		return postId;
-	}
-
-	public void setPostId(int postId) {
-		this.postId = postId;
-	}
-
-	public int getId() {
-		return id;
-	}
-
-	public void setId(int id) {
-		this.id = id;
-	}
-
-	public String getName() {
-		return name;
-	}
-
-	public void setName(String name) {
-		this.name = name;
-	}
-
-	public String getEmail() {
-		return email;
-	}
-
-	public void setEmail(String email) {
-		this.email = email;
-	}
-
-	public String getBody() {
-		return body;
-	}
-
-	public void setBody(String body) {
-		this.body = body;
-	}
+public record CommentDTO(int postId, int id, String name, String email, String body) {
 
 	@Override
 	public int hashCode() {
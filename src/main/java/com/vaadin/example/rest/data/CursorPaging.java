@@ -0,0 +1,58 @@
+package com.vaadin.example.rest.data;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Lazy fetch callback for a Grid, on top of the cursor based API.
+ * <p>
+ * The cursor at the end of every fetched page is remembered by its position.
+ * When the Grid asks for the rows right after a fetched page, as it does while
+ * scrolling down, they are fetched with that cursor. Other positions, like
+ * jumps with the scrollbar, are fetched by offset, which also gives a cursor to
+ * continue from.
+ * <p>
+ * Create one instance per Grid.
+ */
+@SuppressWarnings("serial")
+public class CursorPaging implements Serializable {
+
+	private static final int MAX_CURSORS = 100;
+
+	private final RestClientService service;
+
+	/**
+	 * Cursors by the position of the item they continue from; the most recently
+	 * used ones are kept.
+	 */
+	private final Map<Integer, String> cursors = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+			return size() > MAX_CURSORS;
+		}
+	};
+
+	public CursorPaging(RestClientService service) {
+		this.service = service;
+	}
+
+	/**
+	 * Fetches {@code limit} items from position {@code offset}.
+	 */
+	public Stream<MessageDTO> fetch(int offset, int limit) {
+		final String cursor;
+		synchronized (cursors) {
+			cursor = cursors.get(offset);
+		}
+
+		final MessagePageDTO page = service.fetchPage(cursor, offset, limit);
+		if (page.getNext() != null) {
+			synchronized (cursors) {
+				cursors.put(offset + page.getItems().size(), page.getNext());
+			}
+		}
+		return page.getItems().stream();
+	}
+}
@@ -0,0 +1,117 @@
+package com.vaadin.example.rest.data;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Application wide cache for a complete data set that all sessions show, like
+ * all comments or all posts. Every caller gets the same immutable list, so a
+ * data set is held in memory once instead of once per session.
+ * <p>
+ * Once the cached list is older than 'refreshAfter', callers still get it right
+ * away while a fresh copy is fetched in the background (stale-while-revalidate).
+ * A list older than 'expireAfter' is not returned anymore; callers wait for a
+ * fresh copy instead, unless fetching it fails: then the expired list is
+ * returned (stale-if-error), so the views keep working while the upstream is
+ * down. Data sets with more than 'maxItems' items are not cached.
+ *
+ * @param <T> the item type
+ */
+public class DatasetCache<T> {
+
+	private static final Logger log = LoggerFactory.getLogger(DatasetCache.class);
+
+	private record Snapshot<T>(List<T> items, long loadedAt) {
+	}
+
+	private final String name;
+	private final Supplier<List<T>> loader;
+	private final long refreshAfterNanos;
+	private final long expireAfterNanos;
+	private final int maxItems;
+	private final Executor refreshExecutor;
+
+	private volatile Snapshot<T> snapshot;
+	private final SingleFlight<String, List<T>> loadFlight = new SingleFlight<>();
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+	private final LogThrottle staleLog = new LogThrottle(Duration.ofSeconds(10));
+
+	/**
+	 * @param name            name of the data set, for logging
+	 * @param loader          fetches the data set
+	 * @param refreshAfter    age after which the list is refreshed in the
+	 *                        background
+	 * @param expireAfter     age after which the list is not used anymore
+	 * @param maxItems        maximum size of a cached data set
+	 * @param refreshExecutor runs the background refreshes
+	 */
+	public DatasetCache(String name, Supplier<List<T>> loader, Duration refreshAfter, Duration expireAfter,
+			int maxItems, Executor refreshExecutor) {
+		this.name = name;
+		this.loader = loader;
+		this.refreshAfterNanos = refreshAfter.toNanos();
+		this.expireAfterNanos = expireAfter.toNanos();
+		this.maxItems = maxItems;
+		this.refreshExecutor = refreshExecutor;
+	}
+
+	/**
+	 * Returns the shared, immutable list of the data set, fetching it if it
+	 * isn't cached or has expired.
+	 */
+	public List<T> get() {
+		final Snapshot<T> current = snapshot;
+		final long age = current == null ? Long.MAX_VALUE : System.nanoTime() - current.loadedAt();
+		if (age >= expireAfterNanos) {
+			try {
+				return load();
+			} catch (RuntimeException e) {
+				if (current == null) {
+					throw e;
+				}
+				if (staleLog.allow()) {
+					log.warn("Loading {} failed, serving the expired copy: {}", name, e.toString());
+				}
+				return current.items();
+			}
+		}
+
+		// only one background refresh at a time
+		if (age >= refreshAfterNanos && refreshing.compareAndSet(false, true)) {
+			try {
+				refreshExecutor.execute(() -> {
+					try {
+						load();
+					} catch (RuntimeException e) {
+						// keep serving the cached list until it expires
+						log.warn("Refreshing {} failed: {}", name, e.toString());
+					} finally {
+						refreshing.set(false);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// the executor is busy, a later call tries again
+				refreshing.set(false);
+				log.debug("Refreshing {} rejected: {}", name, e.toString());
+			}
+		}
+		return current.items();
+	}
+
+	private List<T> load() {
+		return loadFlight.execute(name, () -> {
+			final List<T> items = List.copyOf(loader.get());
+			if (items.size() <= maxItems) {
+				snapshot = new Snapshot<>(items, System.nanoTime());
+			}
+			return items;
+		});
+	}
+}
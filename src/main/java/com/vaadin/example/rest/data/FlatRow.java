@@ -0,0 +1,107 @@
+package com.vaadin.example.rest.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Compact, read-only row of a JSON object with dynamic structure, an
+ * alternative to keeping the Jackson {@link JsonNode} tree.
+ * <p>
+ * A {@code JsonNode} object keeps a map with an entry and a value node for
+ * every field of every row. A flat row only keeps an array of the plain field
+ * values ({@code String}, {@code Integer}, {@code Long}, {@code Double},
+ * {@code Boolean} or {@code null}; nested objects and arrays stay as
+ * {@code JsonNode}). The field names and their positions are kept once in a
+ * {@link Schema} shared by all rows with the same fields.
+ */
+public final class FlatRow {
+
+	/**
+	 * The field names of a set of rows, and their positions in the rows.
+	 */
+	public static final class Schema {
+
+		private final List<String> columns;
+		private final Map<String, Integer> positions = new HashMap<>();
+
+		private Schema(List<String> columns) {
+			this.columns = List.copyOf(columns);
+			for (int i = 0; i < columns.size(); i++) {
+				positions.put(columns.get(i), i);
+			}
+		}
+
+		public List<String> getColumns() {
+			return columns;
+		}
+
+		private int indexOf(String column) {
+			final Integer position = positions.get(column);
+			return position != null ? position : -1;
+		}
+	}
+
+	private final Schema schema;
+	private final Object[] values;
+
+	private FlatRow(Schema schema, Object[] values) {
+		this.schema = schema;
+		this.values = values;
+	}
+
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Returns the value of the given field, or {@code null} if the row has no
+	 * such field.
+	 */
+	public Object get(String column) {
+		final int position = schema.indexOf(column);
+		return position >= 0 ? values[position] : null;
+	}
+
+	/**
+	 * Converts JSON objects to flat rows. Objects with the same fields in the
+	 * same order share a schema.
+	 */
+	public static List<FlatRow> of(List<JsonNode> nodes) {
+		final Map<List<String>, Schema> schemas = new HashMap<>();
+		final List<FlatRow> rows = new ArrayList<>(nodes.size());
+		for (JsonNode node : nodes) {
+			final List<String> columns = new ArrayList<>(node.size());
+			final Object[] values = new Object[node.size()];
+			final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+			for (int i = 0; fields.hasNext(); i++) {
+				final Map.Entry<String, JsonNode> field = fields.next();
+				columns.add(field.getKey());
+				values[i] = toValue(field.getValue());
+			}
+			rows.add(new FlatRow(schemas.computeIfAbsent(columns, Schema::new), values));
+		}
+		return rows;
+	}
+
+	private static Object toValue(JsonNode value) {
+		if (value.isNull()) {
+			return null;
+		} else if (value.isTextual()) {
+			return value.textValue();
+		} else if (value.isInt()) {
+			return value.intValue();
+		} else if (value.isIntegralNumber() && value.canConvertToLong()) {
+			return value.longValue();
+		} else if (value.isFloatingPointNumber()) {
+			return value.doubleValue();
+		} else if (value.isBoolean()) {
+			return value.booleanValue();
+		}
+		return value;
+	}
+}
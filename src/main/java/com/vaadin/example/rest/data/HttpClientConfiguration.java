@@ -0,0 +1,136 @@
+package com.vaadin.example.rest.data;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ReactorNettyClientRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * HTTP client layer shared by {@link RestClientService} and
+ * {@link AsyncRestClientService}.
+ * <p>
+ * Both services use the same Reactor Netty client and connection pool, so
+ * connections to an upstream are kept alive and reused across services,
+ * sessions and requests. The pool and client are tuned with the
+ * {@code rest.http.*} properties:
+ * <ul>
+ * <li>{@code max-connections}: connections per upstream host</li>
+ * <li>{@code pending-acquire-timeout}: how long a request may wait for a free
+ * connection</li>
+ * <li>{@code keep-alive}: how long an idle connection is kept open</li>
+ * <li>{@code connect-timeout} and {@code read-timeout}</li>
+ * <li>{@code http2}: negotiate HTTP/2 with TLS upstreams, falling back to
+ * HTTP/1.1</li>
+ * <li>{@code compression}: request gzip encoded responses</li>
+ * <li>{@code cache.max-size}: total size of the responses kept in the
+ * {@link HttpResponseCache}</li>
+ * <li>{@code cache.stale-if-error}: how long after expiring a cached response
+ * is still served if the upstream fails</li>
+ * </ul>
+ * Each upstream has an {@link UpstreamGuard} with a bulkhead, deadline,
+ * retries and a circuit breaker, tuned with the {@code rest.resilience.*}
+ * properties.
+ * With virtual threads enabled, the blocking {@link RestClientService} calls
+ * wait on the virtual request thread, while Netty does the I/O without
+ * blocking any thread.
+ */
+@Configuration
+public class HttpClientConfiguration {
+
+	@Bean(destroyMethod = "dispose")
+	public ConnectionProvider restConnectionProvider(@Value("${rest.http.max-connections:50}") int maxConnections,
+			@Value("${rest.http.pending-acquire-timeout:10s}") Duration pendingAcquireTimeout,
+			@Value("${rest.http.keep-alive:60s}") Duration keepAlive) {
+		return ConnectionProvider.builder("rest").maxConnections(maxConnections)
+				.pendingAcquireTimeout(pendingAcquireTimeout).maxIdleTime(keepAlive)
+				// publish the pool usage as reactor.netty.connection.provider.* metrics
+				.metrics(true).build();
+	}
+
+	@Bean
+	public HttpClient restHttpClient(ConnectionProvider restConnectionProvider,
+			@Value("${rest.http.connect-timeout:5s}") Duration connectTimeout,
+			@Value("${rest.http.read-timeout:5s}") Duration readTimeout,
+			@Value("${rest.http.http2:true}") boolean http2,
+			@Value("${rest.http.compression:true}") boolean compression) {
+		return HttpClient.create(restConnectionProvider)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+				.responseTimeout(readTimeout)
+				.protocol(http2 ? new HttpProtocol[] { HttpProtocol.H2, HttpProtocol.HTTP11 }
+						: new HttpProtocol[] { HttpProtocol.HTTP11 })
+				.compress(compression);
+	}
+
+	/**
+	 * Request factory for the blocking {@code RestClient}s.
+	 */
+	@Bean
+	public ClientHttpRequestFactory restRequestFactory(HttpClient restHttpClient,
+			@Value("${rest.http.read-timeout:5s}") Duration readTimeout) {
+		final ReactorNettyClientRequestFactory requestFactory = new ReactorNettyClientRequestFactory(restHttpClient);
+		requestFactory.setReadTimeout(readTimeout);
+		return requestFactory;
+	}
+
+	/**
+	 * HTTP cache honoring the ETag and Cache-Control headers of the upstreams.
+	 */
+	@Bean
+	public HttpResponseCache restResponseCache(@Value("${rest.http.cache.max-size:16MB}") DataSize maxSize,
+			@Value("${rest.http.cache.stale-if-error:1h}") Duration staleIfError) {
+		return new HttpResponseCache(maxSize.toBytes(), staleIfError);
+	}
+
+	/**
+	 * Limits of the {@link UpstreamGuard}s, the same for every upstream.
+	 */
+	@Bean
+	public UpstreamGuard.Settings upstreamGuardSettings(
+			@Value("${rest.resilience.max-concurrent:20}") int maxConcurrent,
+			@Value("${rest.resilience.bulkhead-wait:1s}") Duration bulkheadWait,
+			@Value("${rest.resilience.deadline:10s}") Duration deadline,
+			@Value("${rest.resilience.max-attempts:3}") int maxAttempts,
+			@Value("${rest.resilience.retry-backoff:100ms}") Duration retryBackoff,
+			@Value("${rest.resilience.failure-threshold:5}") int failureThreshold,
+			@Value("${rest.resilience.open-duration:10s}") Duration openDuration) {
+		return new UpstreamGuard.Settings(maxConcurrent, bulkheadWait, deadline, maxAttempts, retryBackoff,
+				failureThreshold, openDuration);
+	}
+
+	/**
+	 * Guard of the requests to JSONPlaceholder, shared by both services.
+	 */
+	@Bean
+	public UpstreamGuard jsonplaceholderGuard(UpstreamGuard.Settings upstreamGuardSettings) {
+		return new UpstreamGuard("jsonplaceholder", upstreamGuardSettings);
+	}
+
+	/**
+	 * Guard of the requests to the local REST provider, shared by both
+	 * services.
+	 */
+	@Bean
+	public UpstreamGuard localGuard(UpstreamGuard.Settings upstreamGuardSettings) {
+		return new UpstreamGuard("local", upstreamGuardSettings);
+	}
+
+	/**
+	 * Connector for {@code WebClient}s, including the {@code WebClient.Builder}
+	 * auto-configured by Spring Boot.
+	 */
+	@Bean
+	public ClientHttpConnector restClientHttpConnector(HttpClient restHttpClient) {
+		return new ReactorClientHttpConnector(restHttpClient);
+	}
+}
@@ -0,0 +1,456 @@
+package com.vaadin.example.rest.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Local HTTP cache for GET responses, shared by the {@code RestClient}s of
+ * {@link RestClientService} (through {@link #interceptor()}) and the
+ * {@code WebClient} of {@link AsyncRestClientService} (through
+ * {@link #filter()}).
+ * <p>
+ * Responses are cached following their {@code Cache-Control} header. While a
+ * response is fresh, it is returned without contacting the upstream at all.
+ * Once it is stale, the request is sent with an {@code If-None-Match} header
+ * carrying the cached ETag, and a 304 Not Modified answer is served from the
+ * cache. Responses marked {@code no-store} or {@code private} are not cached,
+ * as the cache is shared by all sessions.
+ * <p>
+ * When the upstream fails, with an I/O error, a 5xx response or a request
+ * rejected by its {@link UpstreamGuard}, a cached response that expired less
+ * than {@code staleIfError} ago is served instead, like the
+ * {@code stale-if-error} extension of RFC 5861. Users then see slightly
+ * outdated data rather than an error while the upstream recovers.
+ * <p>
+ * The cache is bounded by the total size of the cached bodies, evicting the
+ * least recently used responses first. Hit, revalidation, miss and stale
+ * counts are kept for monitoring. Responses served from the cache, fresh,
+ * revalidated or stale, carry a {@code Cache-Status} header (RFC 9211), so
+ * callers can tell them from responses the upstream sent in full.
+ */
+public class HttpResponseCache {
+
+	private static final Logger log = LoggerFactory.getLogger(HttpResponseCache.class);
+
+	private static final String CACHE_STATUS = "Cache-Status";
+	private static final String HIT = "HttpResponseCache; hit";
+	private static final String REVALIDATED = "HttpResponseCache; fwd=stale; fwd-status=304";
+	private static final String STALE = "HttpResponseCache; fwd=stale; detail=stale-if-error";
+
+	private record Entry(HttpStatusCode status, HttpHeaders headers, byte[] body, long expiresAt) {
+
+		String etag() {
+			return headers.getETag();
+		}
+
+		boolean isFresh() {
+			return System.currentTimeMillis() < expiresAt;
+		}
+
+		boolean isUsableOnError(long staleIfError) {
+			return System.currentTimeMillis() < expiresAt + staleIfError;
+		}
+	}
+
+	private final long maxBytes;
+	private final long staleIfError;
+	private final LogThrottle staleLog = new LogThrottle(Duration.ofSeconds(10));
+
+	/**
+	 * Responses in access order, least recently used first.
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long cachedBytes;
+
+	private long hits;
+	private long revalidations;
+	private long misses;
+	private long staleServed;
+
+	/**
+	 * @param maxBytes     maximum total size of the cached response bodies
+	 * @param staleIfError how long after expiring a response may still be served
+	 *                     when the upstream fails
+	 */
+	public HttpResponseCache(long maxBytes, Duration staleIfError) {
+		this.maxBytes = maxBytes;
+		this.staleIfError = staleIfError.toMillis();
+	}
+
+	/**
+	 * Returns an interceptor that caches the responses of a {@code RestClient}.
+	 */
+	public ClientHttpRequestInterceptor interceptor() {
+		return this::intercept;
+	}
+
+	private ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+		if (request.getMethod() != HttpMethod.GET) {
+			return execution.execute(request, body);
+		}
+		final String key = key(request.getURI(), request.getHeaders());
+		final Entry cached = lookup(key);
+		if (cached != null && cached.isFresh()) {
+			return toResponse(cached, HIT);
+		}
+		final boolean conditional = cached != null && cached.etag() != null;
+		if (conditional) {
+			request.getHeaders().setIfNoneMatch(cached.etag());
+		}
+
+		final ClientHttpResponse response;
+		try {
+			response = execution.execute(request, body);
+		} catch (IOException e) {
+			if (conditional) {
+				notRevalidated();
+			}
+			if (canServeStale(cached)) {
+				return toResponse(servedStale(request.getURI(), cached, e.toString()), STALE);
+			}
+			throw e;
+		}
+		if (conditional && !response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+			notRevalidated();
+		}
+		if (response.getStatusCode().is5xxServerError() && canServeStale(cached)) {
+			response.close();
+			return toResponse(servedStale(request.getURI(), cached, response.getStatusCode().toString()), STALE);
+		}
+		if (cached != null && response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+			response.close();
+			return toResponse(revalidated(key, cached, response.getHeaders()), REVALIDATED);
+		}
+		if (!isStorable(response.getStatusCode(), response.getHeaders())) {
+			return response;
+		}
+		try (response) {
+			return toResponse(store(key, response.getStatusCode(), response.getHeaders(),
+					response.getBody().readAllBytes()), null);
+		}
+	}
+
+	/**
+	 * Returns a filter that caches the responses of a {@code WebClient}.
+	 */
+	public ExchangeFilterFunction filter() {
+		return (request, next) -> {
+			if (request.method() != HttpMethod.GET) {
+				return next.exchange(request);
+			}
+			final String key = key(request.url(), request.headers());
+			final Entry cached = lookup(key);
+			if (cached != null && cached.isFresh()) {
+				return Mono.just(toClientResponse(ClientResponse.create(cached.status()), cached, HIT));
+			}
+			final boolean conditional = cached != null && cached.etag() != null;
+			final ClientRequest sent = !conditional ? request
+					: ClientRequest.from(request).headers(headers -> headers.setIfNoneMatch(cached.etag())).build();
+
+			return next.exchange(sent).doOnError(e -> {
+				if (conditional) {
+					notRevalidated();
+				}
+			}).flatMap(response -> {
+				if (conditional && !response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+					notRevalidated();
+				}
+				if (response.statusCode().is5xxServerError() && canServeStale(cached)) {
+					final Entry entry = servedStale(request.url(), cached, response.statusCode().toString());
+					return response.releaseBody().thenReturn(
+							toClientResponse(ClientResponse.create(entry.status(), response.strategies()), entry, STALE));
+				}
+				if (cached != null && response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+					final Entry entry = revalidated(key, cached, response.headers().asHttpHeaders());
+					return response.releaseBody().thenReturn(toClientResponse(
+							ClientResponse.create(entry.status(), response.strategies()), entry, REVALIDATED));
+				}
+				if (!isStorable(response.statusCode(), response.headers().asHttpHeaders())) {
+					return Mono.just(response);
+				}
+				// copy the body into the cache as it passes through, so consumers can
+				// still decode it incrementally
+				final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+				final AtomicBoolean tooLarge = new AtomicBoolean();
+				return Mono.just(response.mutate().body(body -> body.doOnNext(buffer -> {
+					if (tooLarge.get() || copy.size() + buffer.readableByteCount() > maxBytes) {
+						tooLarge.set(true);
+						return;
+					}
+					final byte[] bytes = new byte[buffer.readableByteCount()];
+					final int position = buffer.readPosition();
+					buffer.read(bytes);
+					buffer.readPosition(position);
+					copy.writeBytes(bytes);
+				}).doOnComplete(() -> {
+					if (!tooLarge.get()) {
+						store(key, response.statusCode(), response.headers().asHttpHeaders(), copy.toByteArray());
+					}
+				})).build());
+			}).onErrorResume(e -> canServeStale(cached), e -> Mono.just(
+					toClientResponse(ClientResponse.create(cached.status()),
+							servedStale(request.url(), cached, e.toString()), STALE)));
+		};
+	}
+
+	private boolean canServeStale(Entry cached) {
+		return cached != null && cached.isUsableOnError(staleIfError);
+	}
+
+	private Entry servedStale(URI uri, Entry cached, String failure) {
+		synchronized (this) {
+			staleServed++;
+		}
+		if (staleLog.allow()) {
+			log.warn("Serving a stale response of {}, the upstream failed: {}", uri, failure);
+		}
+		return cached;
+	}
+
+	/**
+	 * Representations differ by URL and by the requested media type.
+	 */
+	private static String key(URI uri, HttpHeaders headers) {
+		return uri + " " + String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT));
+	}
+
+	/**
+	 * Returns the cached response, fresh, to be revalidated or to be served if
+	 * the upstream fails, or {@code null} if there is none. A response to be
+	 * revalidated is counted once the upstream has answered, see
+	 * {@link #revalidated} and {@link #notRevalidated()}.
+	 */
+	private synchronized Entry lookup(String key) {
+		final Entry entry = entries.get(key);
+		if (entry != null && entry.isFresh()) {
+			hits++;
+			return entry;
+		}
+		if (entry != null && entry.etag() != null) {
+			return entry;
+		}
+		misses++;
+		// stale and without an ETag, there's nothing to revalidate; keep it only
+		// to serve if the upstream fails
+		if (entry != null && entry.isUsableOnError(staleIfError)) {
+			return entry;
+		}
+		if (entry != null) {
+			entries.remove(key);
+			cachedBytes -= entry.body().length;
+		}
+		return null;
+	}
+
+	private Entry store(String key, HttpStatusCode status, HttpHeaders responseHeaders, byte[] body) {
+		final HttpHeaders headers = new HttpHeaders();
+		headers.addAll(responseHeaders);
+		// the body is kept decoded, whatever the transfer used
+		headers.remove(HttpHeaders.TRANSFER_ENCODING);
+		headers.remove(HttpHeaders.CONTENT_ENCODING);
+		headers.setContentLength(body.length);
+		final Entry entry = new Entry(status, HttpHeaders.readOnlyHttpHeaders(headers), body,
+				System.currentTimeMillis() + freshFor(headers));
+		put(key, entry);
+		return entry;
+	}
+
+	/**
+	 * Renews a cached response after the upstream confirmed it's still valid.
+	 * The 304 response carries the current caching headers.
+	 */
+	private Entry revalidated(String key, Entry cached, HttpHeaders notModifiedHeaders) {
+		synchronized (this) {
+			revalidations++;
+		}
+		final HttpHeaders caching = notModifiedHeaders.containsKey(HttpHeaders.CACHE_CONTROL) ? notModifiedHeaders
+				: cached.headers();
+		final Entry entry = new Entry(cached.status(), cached.headers(), cached.body(),
+				System.currentTimeMillis() + freshFor(caching));
+		put(key, entry);
+		return entry;
+	}
+
+	/**
+	 * The upstream didn't confirm a cached response with a 304, but sent a new
+	 * one or failed, so the request counts as a miss.
+	 */
+	private synchronized void notRevalidated() {
+		misses++;
+	}
+
+	private synchronized void put(String key, Entry entry) {
+		final Entry previous = entries.remove(key);
+		if (previous != null) {
+			cachedBytes -= previous.body().length;
+		}
+		if (entry.body().length > maxBytes) {
+			return;
+		}
+		entries.put(key, entry);
+		cachedBytes += entry.body().length;
+
+		// drop least recently used responses until within the limit
+		while (cachedBytes > maxBytes) {
+			final Map.Entry<String, Entry> eldest = entries.entrySet().iterator().next();
+			entries.remove(eldest.getKey());
+			cachedBytes -= eldest.getValue().body().length;
+		}
+	}
+
+	/**
+	 * Whether a response may be cached: a successful response that the upstream
+	 * allows a shared cache to store, and that is either fresh for a while or can
+	 * be revalidated with its ETag.
+	 */
+	private static boolean isStorable(HttpStatusCode status, HttpHeaders headers) {
+		if (!status.isSameCodeAs(HttpStatus.OK)) {
+			return false;
+		}
+		final String cacheControl = String.join(",", headers.getOrEmpty(HttpHeaders.CACHE_CONTROL));
+		if (cacheControl.contains("no-store") || cacheControl.contains("private")) {
+			return false;
+		}
+		return headers.getETag() != null || freshFor(headers) > 0;
+	}
+
+	/**
+	 * Returns for how many milliseconds a response stays fresh, from the
+	 * {@code max-age} or {@code s-maxage} directive minus the {@code Age} the
+	 * response already had in upstream caches.
+	 */
+	private static long freshFor(HttpHeaders headers) {
+		long maxAge = 0;
+		long sharedMaxAge = -1;
+		try {
+			for (String directive : String.join(",", headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)).split(",")) {
+				final String[] parts = directive.trim().toLowerCase(Locale.ROOT).split("=", 2);
+				if (parts[0].equals("no-cache")) {
+					return 0;
+				} else if (parts[0].equals("max-age") && parts.length == 2) {
+					maxAge = Long.parseLong(parts[1].trim());
+				} else if (parts[0].equals("s-maxage") && parts.length == 2) {
+					sharedMaxAge = Long.parseLong(parts[1].trim());
+				}
+			}
+			final String age = headers.getFirst("Age");
+			if (sharedMaxAge >= 0) {
+				maxAge = sharedMaxAge;
+			}
+			return Math.max(0, maxAge - (age != null ? Long.parseLong(age.trim()) : 0)) * 1000;
+		} catch (NumberFormatException e) {
+			// malformed header, revalidate every time
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns whether a response was served by a {@code HttpResponseCache}
+	 * rather than sent in full by the upstream.
+	 */
+	static boolean isFromCache(HttpHeaders headers) {
+		return headers.containsKey(CACHE_STATUS);
+	}
+
+	private static HttpHeaders headers(Entry entry, String cacheStatus) {
+		if (cacheStatus == null) {
+			return entry.headers();
+		}
+		final HttpHeaders headers = new HttpHeaders();
+		headers.addAll(entry.headers());
+		headers.set(CACHE_STATUS, cacheStatus);
+		return HttpHeaders.readOnlyHttpHeaders(headers);
+	}
+
+	private static ClientHttpResponse toResponse(Entry entry, String cacheStatus) {
+		final HttpHeaders headers = headers(entry, cacheStatus);
+		return new ClientHttpResponse() {
+
+			@Override
+			public HttpStatusCode getStatusCode() {
+				return entry.status();
+			}
+
+			@Override
+			public String getStatusText() {
+				final HttpStatus status = HttpStatus.resolve(entry.status().value());
+				return status != null ? status.getReasonPhrase() : "";
+			}
+
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+
+			@Override
+			public InputStream getBody() {
+				return new ByteArrayInputStream(entry.body());
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	private static ClientResponse toClientResponse(ClientResponse.Builder builder, Entry entry, String cacheStatus) {
+		return builder.headers(headers -> headers.addAll(headers(entry, cacheStatus))).body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(entry.body()))).build();
+	}
+
+	public synchronized int getResponseCount() {
+		return entries.size();
+	}
+
+	public synchronized long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getRevalidationCount() {
+		return revalidations;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getStaleCount() {
+		return staleServed;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d responses, %d bytes, %d hits, %d revalidations, %d misses, %d stale", entries.size(),
+				cachedBytes, hits, revalidations, misses, staleServed);
+	}
+}
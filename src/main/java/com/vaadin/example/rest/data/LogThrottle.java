@@ -0,0 +1,30 @@
+package com.vaadin.example.rest.data;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets through at most one log message per interval. Used for messages on hot
+ * paths, like cache statistics after every fetch, which would otherwise flood
+ * the log and make the request threads contend on its appenders under load.
+ * The exact numbers are available as metrics, see {@link ClientMetrics}.
+ */
+final class LogThrottle {
+
+	private final long intervalNanos;
+	private final AtomicLong nextAllowed = new AtomicLong(System.nanoTime());
+
+	LogThrottle(Duration interval) {
+		this.intervalNanos = interval.toNanos();
+	}
+
+	/**
+	 * Returns whether a message may be logged now. Of concurrent callers, only
+	 * one gets {@code true}.
+	 */
+	boolean allow() {
+		final long now = System.nanoTime();
+		final long allowedAt = nextAllowed.get();
+		return now - allowedAt >= 0 && nextAllowed.compareAndSet(allowedAt, now + intervalNanos);
+	}
+}
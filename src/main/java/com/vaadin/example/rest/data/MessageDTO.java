@@ -2,36 +2,11 @@ package com.vaadin.example.rest.data;
 
 /**
  * DTO class for example 3, lazily fetching partial data with a DTO.
+ * <p>
+ * An immutable record, so that cached pages can safely be shared by all
+ * sessions.
  */
-public class MessageDTO {
-
-	private int id;
-	private String title;
-	private String message;
-
-	public int getId() {
-		return id;
-	}
-
-	public void setId(int id) {
-		this.id = id;
-	}
-
-	public String getTitle() {
-		return title;
-	}
-
-	public void setTitle(String title) {
-		this.title = title;
-	}
-
-	public String getMessage() {
-		return message;
-	}
-
-	public void setMessage(String message) {
-		this.message = message;
-	}
+public record MessageDTO(int id, String title, String message) {
 
 	@Override
 	public int hashCode() {
@@ -43,7 +18,6 @@ public class MessageDTO {
 		if (obj == null || !(obj instanceof MessageDTO)) {
 			return false;
 		}
-
 		return id == ((MessageDTO) obj).id;
 	}
 }
@@ -0,0 +1,39 @@
+package com.vaadin.example.rest.data;
+
+import java.io.Serializable;
+
+/**
+ * Sort order and filters for lazily fetching {@link MessageDTO} items, applied
+ * by the REST service.
+ *
+ * @param sortProperty property to sort by, {@code id} or {@code title};
+ *                     {@code null} for id order
+ * @param descending   whether to sort in descending order
+ * @param titlePrefix  only items whose title starts with this, ignoring case;
+ *                     {@code null} for no filter
+ * @param word         only items whose title or message contains this word,
+ *                     ignoring case; {@code null} for no filter
+ * @param minId        smallest included id, or {@code null} for no limit
+ * @param maxId        largest included id, or {@code null} for no limit
+ */
+@SuppressWarnings("serial")
+public record MessageFilter(String sortProperty, boolean descending, String titlePrefix, String word, Integer minId,
+		Integer maxId) implements Serializable {
+
+	/**
+	 * All items in id order.
+	 */
+	public static final MessageFilter NONE = new MessageFilter(null, false, null, null, null, null);
+
+	public MessageFilter {
+		if (sortProperty != null && sortProperty.isBlank()) {
+			sortProperty = null;
+		}
+		if (titlePrefix != null && titlePrefix.isBlank()) {
+			titlePrefix = null;
+		}
+		if (word != null && word.isBlank()) {
+			word = null;
+		}
+	}
+}
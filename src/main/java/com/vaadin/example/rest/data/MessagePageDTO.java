@@ -0,0 +1,32 @@
+package com.vaadin.example.rest.data;
+
+import java.util.List;
+
+/**
+ * DTO class for a page of {@link MessageDTO} items from the cursor based API.
+ */
+public class MessagePageDTO {
+
+	private List<MessageDTO> items;
+	private String next;
+
+	public List<MessageDTO> getItems() {
+		return items;
+	}
+
+	public void setItems(List<MessageDTO> items) {
+		this.items = items;
+	}
+
+	/**
+	 * Returns the cursor for fetching the next page, or {@code null} if this is
+	 * the last page.
+	 */
+	public String getNext() {
+		return next;
+	}
+
+	public void setNext(String next) {
+		this.next = next;
+	}
+}
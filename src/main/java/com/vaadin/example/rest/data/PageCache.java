@@ -0,0 +1,147 @@
+package com.vaadin.example.rest.data;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache for pages of a lazily fetched data set.
+ * <p>
+ * Items are cached in aligned blocks of {@link #getBlockSize()} items; block
+ * {@code n} holds the items from {@code n * blockSize} on. Blocks are
+ * identified by keys of type {@code K}, typically the block number together
+ * with whatever else identifies the data set, like a filter. The cache is bounded
+ * by the total amount of cached items rather than the amount of blocks, so a
+ * few short blocks at the end of the data set don't skew the limit. Blocks
+ * older than the configured time-to-live are treated as missing.
+ * <p>
+ * Hit, miss and eviction counts are kept for tuning the block size and limits.
+ *
+ * @param <K> the block key type
+ * @param <T> the item type
+ */
+@SuppressWarnings("serial")
+public class PageCache<K, T> implements Serializable {
+
+	private final int blockSize;
+	private final int maxItems;
+	private final long ttlNanos;
+
+	/**
+	 * Blocks in access order, least recently used first.
+	 */
+	private final LinkedHashMap<K, Block<T>> blocks = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * The same blocks, for lookups that must not count as an access
+	 */
+	private final HashMap<K, Block<T>> blocksByKey = new HashMap<>();
+	private int cachedItems;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	private record Block<T>(List<T> items, long loadedAt) implements Serializable {
+	}
+
+	public PageCache(int blockSize, int maxItems, Duration ttl) {
+		this.blockSize = blockSize;
+		this.maxItems = maxItems;
+		this.ttlNanos = ttl.toNanos();
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Returns the cached items of the given block, or {@code null} if the block is
+	 * not cached or has expired.
+	 */
+	public synchronized List<T> get(K blockKey) {
+		final Block<T> block = blocks.get(blockKey);
+		if (block == null || isExpired(block)) {
+			if (block != null) {
+				remove(blockKey);
+			}
+			misses++;
+			return null;
+		}
+		hits++;
+		return block.items();
+	}
+
+	/**
+	 * Returns whether the given block is cached and not expired. Does not count
+	 * as an access.
+	 */
+	public synchronized boolean contains(K blockKey) {
+		final Block<T> block = blocksByKey.get(blockKey);
+		return block != null && !isExpired(block);
+	}
+
+	/**
+	 * Adds the given items as the contents of a block, evicting the least
+	 * recently used blocks if the cache grows over its limit.
+	 */
+	public synchronized void put(K blockKey, List<T> items) {
+		final Block<T> block = new Block<>(List.copyOf(items), System.nanoTime());
+		final Block<T> previous = blocks.put(blockKey, block);
+		blocksByKey.put(blockKey, block);
+		if (previous != null) {
+			cachedItems -= previous.items().size();
+		}
+		cachedItems += items.size();
+
+		final Iterator<Map.Entry<K, Block<T>>> eldest = blocks.entrySet().iterator();
+		while (cachedItems > maxItems && eldest.hasNext()) {
+			final Map.Entry<K, Block<T>> entry = eldest.next();
+			if (entry.getKey().equals(blockKey)) {
+				// never evict the block we are adding
+				continue;
+			}
+			cachedItems -= entry.getValue().items().size();
+			eldest.remove();
+			blocksByKey.remove(entry.getKey());
+			evictions++;
+		}
+	}
+
+	private void remove(K blockKey) {
+		final Block<T> removed = blocks.remove(blockKey);
+		blocksByKey.remove(blockKey);
+		if (removed != null) {
+			cachedItems -= removed.items().size();
+		}
+	}
+
+	private boolean isExpired(Block<T> block) {
+		return System.nanoTime() - block.loadedAt() > ttlNanos;
+	}
+
+	public synchronized int getCachedItemCount() {
+		return cachedItems;
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d items cached, %d hits, %d misses, %d evictions", cachedItems, hits, misses,
+				evictions);
+	}
+}
@@ -0,0 +1,180 @@
+package com.vaadin.example.rest.data;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects requests for ranges of a data set that arrive within a short
+ * window, and fetches them together in one round trip. Ranges for different
+ * keys, like different filters of the data set, are batched separately.
+ * <p>
+ * There is no background thread: the callers waiting for a batch wait out its
+ * window, and the first one to wake up sends it. A batch is sent right away
+ * when it reaches the maximum amount of ranges.
+ *
+ * @param <K> the key type, identifying the data set
+ * @param <T> the item type
+ */
+public class RangeBatcher<K, T> {
+
+	/**
+	 * A range of items, starting from index 'offset'.
+	 */
+	public record Range(int offset, int limit) {
+	}
+
+	/**
+	 * Fetches a batch of ranges, returning the items of each range in the same
+	 * order.
+	 */
+	@FunctionalInterface
+	public interface Fetcher<K, T> {
+		List<List<T>> fetch(K key, List<Range> ranges);
+	}
+
+	private final class Batch {
+		private final K key;
+		private final long deadline = System.nanoTime() + windowNanos;
+		private final List<Range> ranges = new ArrayList<>();
+		private final List<CompletableFuture<List<T>>> results = new ArrayList<>();
+		// no more ranges can be added
+		private boolean closed;
+		// a caller has taken over sending the batch
+		private boolean claimed;
+
+		private Batch(K key) {
+			this.key = key;
+		}
+	}
+
+	private final long windowNanos;
+	private final int maxRanges;
+	private final Fetcher<K, T> fetcher;
+
+	private final Map<K, Batch> open = new HashMap<>();
+	private long requestedRanges;
+	private long sentBatches;
+
+	/**
+	 * @param window    how long to wait for more ranges before sending a batch
+	 * @param maxRanges maximum amount of ranges in one batch
+	 * @param fetcher   fetches a batch
+	 */
+	public RangeBatcher(Duration window, int maxRanges, Fetcher<K, T> fetcher) {
+		this.windowNanos = window.toNanos();
+		this.maxRanges = maxRanges;
+		this.fetcher = fetcher;
+	}
+
+	/**
+	 * Fetches the given ranges, together with the ranges other callers request
+	 * for the same key within the batching window. Failures of the batch are
+	 * propagated to all callers waiting for it.
+	 *
+	 * @return the items of each range, in the same order as the ranges
+	 */
+	public List<List<T>> fetch(K key, List<Range> ranges) {
+		final List<CompletableFuture<List<T>>> results = new ArrayList<>(ranges.size());
+		final Set<Batch> batches = new LinkedHashSet<>();
+		synchronized (this) {
+			requestedRanges += ranges.size();
+			for (Range range : ranges) {
+				Batch batch = open.get(key);
+				if (batch == null) {
+					batch = new Batch(key);
+					open.put(key, batch);
+				}
+				final CompletableFuture<List<T>> result = new CompletableFuture<>();
+				batch.ranges.add(range);
+				batch.results.add(result);
+				results.add(result);
+				batches.add(batch);
+				if (batch.ranges.size() >= maxRanges) {
+					close(batch);
+				}
+			}
+		}
+
+		for (Batch batch : batches) {
+			if (claim(batch)) {
+				send(batch);
+			}
+		}
+
+		final List<List<T>> items = new ArrayList<>(results.size());
+		for (CompletableFuture<List<T>> result : results) {
+			items.add(SingleFlight.await(result));
+		}
+		return items;
+	}
+
+	/**
+	 * Waits until the batch window has passed or the batch is full, and returns
+	 * whether the calling thread should send the batch.
+	 */
+	private synchronized boolean claim(Batch batch) {
+		long remaining;
+		while (!batch.closed && (remaining = batch.deadline - System.nanoTime()) > 0) {
+			try {
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			} catch (InterruptedException e) {
+				// stop waiting for more ranges, but don't leave the batch unsent
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		close(batch);
+		if (batch.claimed) {
+			return false;
+		}
+		batch.claimed = true;
+		sentBatches++;
+		return true;
+	}
+
+	private void close(Batch batch) {
+		if (!batch.closed) {
+			batch.closed = true;
+			open.remove(batch.key, batch);
+			// wake up the callers waiting for the window of this batch
+			notifyAll();
+		}
+	}
+
+	private void send(Batch batch) {
+		try {
+			final List<List<T>> items = fetcher.fetch(batch.key, batch.ranges);
+			for (int i = 0; i < batch.results.size(); i++) {
+				batch.results.get(i).complete(items.get(i));
+			}
+		} catch (RuntimeException | Error e) {
+			batch.results.forEach(result -> result.completeExceptionally(e));
+		}
+	}
+
+	/**
+	 * Returns the amount of ranges requested from this batcher.
+	 */
+	public synchronized long getRequestedRangeCount() {
+		return requestedRanges;
+	}
+
+	/**
+	 * Returns the amount of batches sent, each in one request.
+	 */
+	public synchronized long getSentBatchCount() {
+		return sentBatches;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d ranges in %d requests", requestedRanges, sentBatches);
+	}
+}
@@ -0,0 +1,44 @@
+package com.vaadin.example.rest.data;
+
+import java.io.Serializable;
+
+/**
+ * Scroll state of a single lazy data consumer, such as one Grid. Used by
+ * {@link RestClientService#fetchData(int, int, ReadAhead)} to decide which
+ * blocks to prefetch.
+ * <p>
+ * Read-ahead starts at one block in the current scroll direction and doubles
+ * for every fetch that keeps scrolling the same way, up to the amount of
+ * blocks the service fetches in one request (see {@link AdaptiveFetchSize}).
+ * Changing direction or jumping far resets it to one block.
+ */
+@SuppressWarnings("serial")
+public class ReadAhead implements Serializable {
+
+	private int previousBlock = -1;
+	private int direction = 1;
+	private int blocks = 1;
+
+	/**
+	 * Records a fetch of the given blocks and returns the range of blocks to
+	 * prefetch as {@code {first, last}}, both inclusive. The range may extend
+	 * past the end of the data set; the caller clamps it.
+	 *
+	 * @param maxBlocks maximum amount of blocks to prefetch
+	 */
+	synchronized int[] next(int firstBlock, int lastBlock, int maxBlocks) {
+		if (previousBlock >= 0 && firstBlock != previousBlock) {
+			final int newDirection = firstBlock > previousBlock ? 1 : -1;
+			final boolean jump = Math.abs(firstBlock - previousBlock) > blocks + (lastBlock - firstBlock) + 1;
+			blocks = newDirection == direction && !jump ? blocks * 2 : 1;
+			direction = newDirection;
+		}
+		previousBlock = firstBlock;
+		blocks = Math.min(blocks, maxBlocks);
+
+		if (direction > 0) {
+			return new int[] { lastBlock + 1, lastBlock + blocks };
+		}
+		return new int[] { Math.max(0, firstBlock - blocks), firstBlock - 1 };
+	}
+}
@@ -1,52 +1,204 @@
 package com.vaadin.example.rest.data;
 
 import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriBuilder;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
 /**
  * Example Spring service that connects to a REST API.
  * <p>
- * The class has three different examples for fetching data.
+ * The class has four different examples for fetching data.
  * <p>
  * {@link #getAllComments()} uses a DTO class to map the JSON results from a 3rd
  * party API. It fetches all available results immediately.
  * <p>
- * {@link #getAllPosts()} does not use a DTO for the results, but lets the user
- * process the result JSON in the UI class instead. It fetches all available
- * results immediately.
+ * {@link #getAllPostRows()} does not use a DTO for the results, but keeps the
+ * fields of the result JSON as {@link FlatRow}s, for the UI class to pick from.
+ * It fetches all available results immediately.
  * <p>
- * {@link #fetchData(int, int)}  demonstrate the two
+ * {@link #fetchData(int, int)} and {@link #count()} demonstrate the two
  * methods needed for creating lazy databinding, where we don't fetch
  * all results immediately, but only a portion at a time. This is done to reduce
- * unnecessary memory consumption.
+ * unnecessary memory consumption. Fetched pages are kept in a shared
+ * {@link PageCache}, so scrolling back over rows doesn't fetch them again.
+ * {@link #fetchData(int, int, MessageFilter, ReadAhead)} and
+ * {@link #count(MessageFilter)} do the same for a sorted and filtered view of
+ * the data, and read ahead of a scrolling Grid.
+ * <p>
+ * {@link #fetchPage(String, int, int)} is the fourth example, lazy databinding
+ * that continues from a cursor instead of an offset.
+ * <p>
+ * Pages of the local provider are requested in the binary Smile encoding by
+ * default (see {@code rest.local.media-type}), which is smaller and faster to
+ * decode than JSON.
+ * <p>
+ * The complete data sets of {@link #getAllComments()} and
+ * {@link #getAllPostRows()} are kept in an application wide {@link DatasetCache},
+ * so all sessions share one copy that is refreshed in the background.
+ * <p>
+ * Concurrent identical requests, for example from many sessions opening the
+ * same view at once, are coalesced into a single upstream request with
+ * {@link SingleFlight}. The pages one fetch needs are loaded with one batch
+ * request by {@link RangeBatcher}, and with a {@code rest.batch.window} also
+ * together with the pages other sessions need at about the same time. How
+ * many items are fetched in one request adapts to the latency of the upstream
+ * and the size of its rows, see {@link AdaptiveFetchSize}. Responses are kept
+ * in the shared {@link HttpResponseCache} for as long as their
+ * {@code Cache-Control} header allows, then revalidated with their ETag.
+ * <p>
+ * Every upstream has an {@link UpstreamGuard}, which limits the concurrent
+ * requests, retries failed idempotent requests and fails fast while the
+ * upstream is down. The {@link HttpResponseCache} and {@link DatasetCache} then
+ * serve their stale copies, if they have one.
+ * <p>
+ * Upstream latency, payload sizes, item counts and the cache hit rates are
+ * published as metrics, see {@link ClientMetrics}. Every request is logged at
+ * debug level; the cache statistics are logged at most every
+ * {@code STATS_LOG_INTERVAL}.
  */
 @SuppressWarnings("serial")
 @Service
 public class RestClientService implements Serializable {
 
-	private final RestClient jsonplaceholderClient = RestClient.create("https://jsonplaceholder.typicode.com");
+	private static final Logger log = LoggerFactory.getLogger(RestClientService.class);
+
+	private static final Duration STATS_LOG_INTERVAL = Duration.ofSeconds(10);
+
+	private final RestClient jsonplaceholderClient;
 	private final RestClient localClient;
+	private final MediaType localMediaType;
+	private final HttpResponseCache responseCache;
+	private final ClientMetrics metrics;
+	private final LogThrottle statsLog = new LogThrottle(STATS_LOG_INTERVAL);
+
+	/**
+	 * Maximum amount of items the local provider returns in one request.
+	 */
+	private static final int MAX_FETCH = 500;
 
-	public RestClientService(@Value("${server.port}") String serverPort) {
-		localClient = RestClient.create("http://localhost:" + serverPort );
+	private static final int MAX_CACHED_COUNTS = 100;
+
+	/**
+	 * Maximum amount of ranges the local provider returns in one batch request.
+	 */
+	private static final int MAX_BATCH_RANGES = 20;
+
+	/**
+	 * Identifies a block of the lazily fetched data for a filter
+	 */
+	private record Block(MessageFilter filter, int index) implements Serializable {
+	}
+
+	private final PageCache<Block, MessageDTO> pageCache;
+	private final TaskExecutor prefetchExecutor;
+	private final Map<MessageFilter, Integer> counts = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<MessageFilter, Integer> eldest) {
+			return size() > MAX_CACHED_COUNTS;
+		}
+	};
+
+	// All sessions share one copy of the complete data sets
+	private final DatasetCache<CommentDTO> commentsCache;
+	private final DatasetCache<FlatRow> postsCache;
+
+	// Concurrent callers asking for the same data share one request
+	private final SingleFlight<MessageFilter, Integer> countFlight = new SingleFlight<>();
+	private final ConcurrentMap<Block, CompletableFuture<List<MessageDTO>>> blockFlights = new ConcurrentHashMap<>();
+
+	// Ranges requested at about the same time are fetched in one batch request
+	private final RangeBatcher<MessageFilter, MessageDTO> rangeBatcher;
+
+	// Items per request, adapted to the measured upstream latency and row size
+	private final AdaptiveFetchSize fetchSize;
+
+	public RestClientService(
+			@Value("${rest.upstream.jsonplaceholder.url:https://jsonplaceholder.typicode.com}") String jsonplaceholderUrl,
+			@Value("${rest.upstream.local.url:http://localhost:${server.port}}") String localUrl,
+			@Value("${rest.page-cache.block-size:50}") int blockSize,
+			@Value("${rest.page-cache.max-items:5000}") int maxItems,
+			@Value("${rest.page-cache.ttl:5m}") Duration ttl,
+			@Value("${rest.batch.window:0ms}") Duration batchWindow,
+			@Value("${rest.fetch.target-latency:200ms}") Duration fetchTargetLatency,
+			@Value("${rest.fetch.max-size:512KB}") DataSize fetchMaxSize,
+			@Value("${rest.local.media-type:application/x-jackson-smile}") MediaType localMediaType,
+			@Value("${rest.dataset-cache.refresh-after:5m}") Duration datasetRefreshAfter,
+			@Value("${rest.dataset-cache.expire-after:1h}") Duration datasetExpireAfter,
+			@Value("${rest.dataset-cache.max-items:10000}") int datasetMaxItems,
+			@Qualifier("applicationTaskExecutor") TaskExecutor prefetchExecutor,
+			ClientHttpRequestFactory requestFactory, HttpResponseCache responseCache, ClientMetrics metrics,
+			@Qualifier("jsonplaceholderGuard") UpstreamGuard jsonplaceholderGuard,
+			@Qualifier("localGuard") UpstreamGuard localGuard) {
+		// the metrics interceptor comes after the cache, so it sees only the
+		// requests that reach the upstream; the guard comes last, as its retries
+		// skip the interceptors that follow it
+		jsonplaceholderClient = RestClient.builder().requestFactory(requestFactory)
+				.requestInterceptor(responseCache.interceptor())
+				.requestInterceptor(metrics.interceptor())
+				.requestInterceptor(jsonplaceholderGuard.interceptor())
+				.baseUrl(jsonplaceholderUrl).build();
+		localClient = RestClient.builder().requestFactory(requestFactory)
+				.requestInterceptor(responseCache.interceptor())
+				.requestInterceptor(metrics.interceptor())
+				.requestInterceptor(localGuard.interceptor())
+				.baseUrl(localUrl).build();
+		this.responseCache = responseCache;
+		this.metrics = metrics;
+		this.localMediaType = localMediaType;
+		pageCache = new PageCache<>(Math.min(blockSize, MAX_FETCH), maxItems, ttl);
+		this.prefetchExecutor = prefetchExecutor;
+		rangeBatcher = new RangeBatcher<>(batchWindow, MAX_BATCH_RANGES, this::fetchRanges);
+		fetchSize = new AdaptiveFetchSize(pageCache.getBlockSize(), MAX_FETCH, fetchTargetLatency,
+				fetchMaxSize.toBytes());
+		metrics.bindPageCache("page", pageCache);
+		metrics.bindRangeBatcher(rangeBatcher);
+		metrics.bindFetchSize(fetchSize);
+		commentsCache = new DatasetCache<>("comments", this::fetchAllComments, datasetRefreshAfter,
+				datasetExpireAfter, datasetMaxItems, prefetchExecutor);
+		postsCache = new DatasetCache<>("posts", this::fetchAllPosts, datasetRefreshAfter, datasetExpireAfter,
+				datasetMaxItems, prefetchExecutor);
 	}
 
 	/**
 	 * Returns parsed {@link CommentDTO} objects from the REST service.
 	 *
 	 * Useful when the response data has a known structure.
+	 * <p>
+	 * The returned list is immutable and shared by all callers, see
+	 * {@link DatasetCache}.
 	 */
 	public List<CommentDTO> getAllComments() {
+		return commentsCache.get();
+	}
+
+	private List<CommentDTO> fetchAllComments() {
 
-		System.out.println("Fetching all Comment objects through REST..");
+		log.info("Fetching all Comment objects through REST..");
 
 		// Fetch from 3rd party API; configure fetch
 
@@ -54,53 +206,381 @@ public class RestClientService implements Serializable {
 		List<CommentDTO> comments = jsonplaceholderClient.get().uri("comments").retrieve()
 				.body(new ParameterizedTypeReference<>() {});
 
-		System.out.println(String.format("...received %d items.", comments.size()));
+		log.info("...received {} items.", comments.size());
+		metrics.recordItems("comments", comments.size());
 
 		return comments;
 	}
 
 	/**
-	 * Returns non-parsed JSON response objects from the REST service.
+	 * Returns the JSON response objects from the REST service, without mapping
+	 * them to a DTO class. The fields of each object are kept in a compact
+	 * {@link FlatRow}, which uses much less memory than Jackson's
+	 * {@code JsonNode} tree.
 	 *
 	 * Useful when you don't want to create a DTO class, or the response data has a
 	 * dynamic structure.
+	 * <p>
+	 * The returned list is immutable and shared by all callers, see
+	 * {@link DatasetCache}.
 	 */
-	public List<JsonNode> getAllPosts() {
+	public List<FlatRow> getAllPostRows() {
+		return postsCache.get();
+	}
 
-		System.out.println("Fetching all Post objects through REST..");
+	private List<FlatRow> fetchAllPosts() {
+
+		log.info("Fetching all Post objects through REST..");
 
 		// do fetch and use Jackson's raw JsonNode instead of properly mapped DTO
 		final List<JsonNode> posts = jsonplaceholderClient.get().uri("posts").retrieve()
 				.body(new ParameterizedTypeReference<>() {});
 
-		System.out.println(String.format("...received %d items.", posts.size()));
+		log.info("...received {} items.", posts.size());
+		metrics.recordItems("posts", posts.size());
 
-		return posts;
+		return FlatRow.of(posts);
+
+	}
+
+	/**
+	 * Returns the total amount of data items available from the REST API.
+	 */
+	public int count() {
+		return count(MessageFilter.NONE);
+	}
+
+	/**
+	 * Returns the amount of data items matching the filter.
+	 */
+	public int count(MessageFilter filter) {
+		synchronized (counts) {
+			final Integer cached = counts.get(filter);
+			if (cached != null) {
+				// the data set doesn't change, so ask only once per filter
+				return cached;
+			}
+		}
+
+		final int result = countFlight.execute(filter, () -> localClient.get()
+				.uri(uriBuilder -> withFilter(uriBuilder.path("count"), filter).build())
+				.retrieve().body(Integer.class));
+		synchronized (counts) {
+			counts.put(filter, result);
+		}
+		return result;
+	}
 
+	/**
+	 * Returns the size of the blocks pages are cached and fetched in. A consumer
+	 * that requests whole, aligned blocks, like a Grid with this page size, never
+	 * needs a block it doesn't show.
+	 */
+	public int getBlockSize() {
+		return pageCache.getBlockSize();
 	}
 
 	/**
 	 * Fetches the specified amount of data items starting from index 'offset' from
-	 * the REST API.
+	 * the REST API. Any amount can be requested; ranges larger than the upstream
+	 * allows in one request are split.
 	 */
 	public Stream<MessageDTO> fetchData(int limit, int offset) {
-		System.out.println(String.format("Fetching partial data set %d through %d...", offset, offset + limit));
+		return fetchData(limit, offset, MessageFilter.NONE, null);
+	}
+
+	/**
+	 * Fetches the specified amount of data items starting from index 'offset' from
+	 * the REST API, and prefetches the following blocks in the direction the
+	 * consumer is scrolling.
+	 *
+	 * @param readAhead scroll state of the consumer, or {@code null} for no
+	 *                  read-ahead
+	 */
+	public Stream<MessageDTO> fetchData(int limit, int offset, ReadAhead readAhead) {
+		return fetchData(limit, offset, MessageFilter.NONE, readAhead);
+	}
+
+	/**
+	 * Fetches the specified amount of sorted and filtered data items starting
+	 * from index 'offset' from the REST API, and prefetches the following blocks
+	 * in the direction the consumer is scrolling.
+	 *
+	 * @param filter    sort order and filters, applied by the REST API
+	 * @param readAhead scroll state of the consumer, or {@code null} for no
+	 *                  read-ahead
+	 */
+	public Stream<MessageDTO> fetchData(int limit, int offset, MessageFilter filter, ReadAhead readAhead) {
+		final int end = Math.min(offset + limit, count(filter));
+		if (end <= offset) {
+			return Stream.empty();
+		}
 
+		final int blockSize = pageCache.getBlockSize();
+		final int firstBlock = offset / blockSize;
+		final int lastBlock = (end - 1) / blockSize;
+
+		// collect the requested range from cached blocks, loading missing ones
+		final List<MessageDTO> result = new ArrayList<>(end - offset);
+		final Map<Block, List<MessageDTO>> loaded = new HashMap<>();
+		for (int index = firstBlock; index <= lastBlock; index++) {
+			final Block block = new Block(filter, index);
+			List<MessageDTO> items = loaded.get(block);
+			if (items == null) {
+				items = pageCache.get(block);
+			}
+			while (items == null) {
+				loaded.putAll(loadBlocks(filter, index, lastBlock));
+				items = loaded.get(block);
+				if (items == null) {
+					// another thread cached the block after our miss, so it wasn't loaded
+					items = pageCache.get(block);
+				}
+			}
+			final int blockStart = index * blockSize;
+			result.addAll(items.subList(Math.max(offset - blockStart, 0), Math.min(end - blockStart, items.size())));
+		}
+
+		if (readAhead != null) {
+			final int[] prefetch = readAhead.next(firstBlock, lastBlock, fetchSize.getFetchBlocks());
+			final int first = prefetch[0];
+			final int last = Math.min(prefetch[1], (count(filter) - 1) / blockSize);
+			if (first <= last) {
+				prefetchExecutor.execute(() -> loadBlocks(filter, first, last));
+			}
+		}
+
+		return result.stream();
+	}
+
+	/**
+	 * Loads the blocks that are not cached in the given range, fetching each run
+	 * of consecutive missing blocks with as few requests as possible. Blocks that
+	 * another thread is already loading are not fetched again; we wait for that
+	 * request instead. Returns the loaded blocks.
+	 */
+	private Map<Block, List<MessageDTO>> loadBlocks(MessageFilter filter, int firstBlock, int lastBlock) {
+		final Map<Block, List<MessageDTO>> loaded = new HashMap<>();
+		final Map<Integer, CompletableFuture<List<MessageDTO>>> claimed = new TreeMap<>();
+		final Map<Block, CompletableFuture<List<MessageDTO>>> loadedByOthers = new HashMap<>();
+
+		for (int index = firstBlock; index <= lastBlock; index++) {
+			final Block block = new Block(filter, index);
+			if (pageCache.contains(block)) {
+				continue;
+			}
+			final CompletableFuture<List<MessageDTO>> flight = new CompletableFuture<>();
+			final CompletableFuture<List<MessageDTO>> existing = blockFlights.putIfAbsent(block, flight);
+			if (existing != null) {
+				loadedByOthers.put(block, existing);
+			} else {
+				claimed.put(index, flight);
+			}
+		}
+
+		try {
+			fetchBlocks(filter, claimed, loaded);
+		} catch (RuntimeException e) {
+			claimed.values().forEach(flight -> flight.completeExceptionally(e));
+			throw e;
+		} finally {
+			claimed.forEach((index, flight) -> blockFlights.remove(new Block(filter, index), flight));
+		}
+
+		loadedByOthers.forEach((block, flight) -> loaded.put(block, SingleFlight.await(flight)));
+		return loaded;
+	}
+
+	/**
+	 * Fetches the given claimed blocks, merging consecutive blocks into ranges of
+	 * up to the adaptive fetch size, and completes their flights. The ranges are
+	 * fetched in one batch, together with ranges other threads need at the same
+	 * time.
+	 */
+	private void fetchBlocks(MessageFilter filter, Map<Integer, CompletableFuture<List<MessageDTO>>> claimed,
+			Map<Block, List<MessageDTO>> loaded) {
+		final int blockSize = pageCache.getBlockSize();
+		final int maxBlocksPerFetch = fetchSize.getFetchBlocks();
+
+		final Integer[] blocks = claimed.keySet().toArray(new Integer[0]);
+		final List<RangeBatcher.Range> ranges = new ArrayList<>();
+		final List<Integer> runStarts = new ArrayList<>();
+		int runStart = 0;
+		while (runStart < blocks.length) {
+			int runEnd = runStart;
+			while (runEnd + 1 < blocks.length && blocks[runEnd + 1] == blocks[runEnd] + 1
+					&& runEnd - runStart + 1 < maxBlocksPerFetch) {
+				runEnd++;
+			}
+
+			final int offset = blocks[runStart] * blockSize;
+			final int limit = Math.min((blocks[runEnd] + 1) * blockSize, count(filter)) - offset;
+			ranges.add(new RangeBatcher.Range(offset, limit));
+			runStarts.add(runStart);
+			runStart = runEnd + 1;
+		}
+		if (ranges.isEmpty()) {
+			return;
+		}
+
+		final List<List<MessageDTO>> fetched = rangeBatcher.fetch(filter, ranges);
+		runStarts.add(blocks.length);
+		for (int run = 0; run < ranges.size(); run++) {
+			runStart = runStarts.get(run);
+			final int runEnd = runStarts.get(run + 1) - 1;
+			final List<MessageDTO> items = fetched.get(run);
+			for (int i = runStart; i <= runEnd; i++) {
+				final int from = Math.min((i - runStart) * blockSize, items.size());
+				final List<MessageDTO> blockItems = items.subList(from, Math.min(from + blockSize, items.size()));
+				final Block block = new Block(filter, blocks[i]);
+				pageCache.put(block, blockItems);
+				loaded.put(block, blockItems);
+				claimed.get(blocks[i]).complete(blockItems);
+			}
+		}
+	}
+
+	/**
+	 * Fetches a batch of ranges, with one request to the batch API of the local
+	 * provider. A single range is fetched with a plain GET request instead, so
+	 * that it can be served from HTTP caches.
+	 */
+	private List<List<MessageDTO>> fetchRanges(MessageFilter filter, List<RangeBatcher.Range> ranges) {
+		if (ranges.size() == 1) {
+			return List.of(fetchRange(ranges.get(0).limit(), ranges.get(0).offset(), filter));
+		}
+
+		log.debug("Fetching batch of {} ranges...", ranges.size());
+		final long start = System.nanoTime();
+		final List<List<MessageDTO>> batch = localClient.post()
+				.uri(uriBuilder -> withFilter(uriBuilder.path("data/batch"), filter).build())
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(localMediaType)
+				.body(ranges)
+				.retrieve()
+				.body(new ParameterizedTypeReference<>() {});
+
+		final int items = batch.stream().mapToInt(List::size).sum();
+		fetchSize.record(items, System.nanoTime() - start, batch.stream().mapToLong(RestClientService::textLength).sum());
+		log.debug("...received {} ranges with {} items.", batch.size(), items);
+		metrics.recordItems("data/batch", items);
+		logStats();
+		return batch;
+	}
+
+	private List<MessageDTO> fetchRange(int limit, int offset, MessageFilter filter) {
+		log.debug("Fetching partial data set {} through {}...", offset, offset + limit);
 
 		// We use a local provider for this bigger data set.
-		// The API has two parameters, 'count' and 'offset'.
+		// The API has two parameters, 'count' and 'offset', and optional
+		// parameters for sorting and filtering.
 
-		// Other than that, this method is similar to #getAllComments().
-		final List<MessageDTO> posts = localClient.get().uri(uriBuilder ->
-            uriBuilder.path("data")
+		// Other than that, this method is similar to #getAllComments(). The
+		// Accept header asks the provider for the compact binary encoding; the
+		// client picks the matching converter from the response content type.
+		final long start = System.nanoTime();
+		final ResponseEntity<List<MessageDTO>> response = localClient.get().uri(uriBuilder ->
+            withFilter(uriBuilder.path("data"), filter)
 					.queryParam("limit", limit)
 					.queryParam("offset", offset)
 					.build())
+				.accept(localMediaType)
 				.retrieve()
-				.body(new ParameterizedTypeReference<>() {});
+				.toEntity(new ParameterizedTypeReference<>() {});
+		final List<MessageDTO> posts = response.getBody();
+
+		// responses from the HTTP cache tell nothing about the upstream
+		if (!HttpResponseCache.isFromCache(response.getHeaders())) {
+			fetchSize.record(posts.size(), System.nanoTime() - start, textLength(posts));
+		}
+		log.debug("...received {} items.", posts.size());
+		metrics.recordItems("data", posts.size());
+		logStats();
+		return posts;
+	}
+
+	/**
+	 * Approximate size of fetched items, for {@link AdaptiveFetchSize}
+	 */
+	private static long textLength(List<MessageDTO> items) {
+		long length = 0;
+		for (MessageDTO item : items) {
+			length += item.title().length() + item.message().length();
+		}
+		return length;
+	}
+
+	/**
+	 * Logs the cache and batching statistics, at most every
+	 * {@code STATS_LOG_INTERVAL}.
+	 */
+	private void logStats() {
+		if (log.isInfoEnabled() && statsLog.allow()) {
+			log.info("Page cache: {}. HTTP cache: {}. Batching: {}. Fetch size: {}", pageCache, responseCache,
+					rangeBatcher, fetchSize);
+		}
+	}
 
-		System.out.println(String.format("...received %d items.", posts.size()));
-		return posts.stream();
+	/**
+	 * Adds the sort and filter parameters of the local provider's API.
+	 */
+	static UriBuilder withFilter(UriBuilder uriBuilder, MessageFilter filter) {
+		if (filter.sortProperty() != null) {
+			uriBuilder.queryParam("sort", filter.sortProperty()).queryParam("descending", filter.descending());
+		}
+		if (filter.titlePrefix() != null) {
+			uriBuilder.queryParam("titlePrefix", filter.titlePrefix());
+		}
+		if (filter.word() != null) {
+			uriBuilder.queryParam("word", filter.word());
+		}
+		if (filter.minId() != null) {
+			uriBuilder.queryParam("minId", filter.minId());
+		}
+		if (filter.maxId() != null) {
+			uriBuilder.queryParam("maxId", filter.maxId());
+		}
+		return uriBuilder;
+	}
+
+	/**
+	 * Fetches a page of data items with the cursor based API. Continuing from a
+	 * cursor costs the local provider only the size of the page, however far
+	 * into the data set it is.
+	 *
+	 * @param cursor cursor from a previously fetched page, or {@code null} to
+	 *               start from 'offset'
+	 * @param offset index of the first item, used when there is no cursor
+	 * @param limit  maximum amount of items to fetch
+	 */
+	public MessagePageDTO fetchPage(String cursor, int offset, int limit) {
+		if (cursor != null) {
+			log.debug("Fetching page of {} items after cursor {}...", limit, cursor);
+		} else {
+			log.debug("Fetching page of {} items from {}...", limit, offset);
+		}
+
+		final MessagePageDTO page = localClient.get().uri(uriBuilder -> {
+			uriBuilder.path("data/cursor").queryParam("limit", limit);
+			if (cursor != null) {
+				uriBuilder.queryParam("after", cursor);
+			} else {
+				uriBuilder.queryParam("offset", offset);
+			}
+			return uriBuilder.build();
+		}).accept(localMediaType).retrieve().body(MessagePageDTO.class);
+
+		log.debug("...received {} items.", page.getItems().size());
+		metrics.recordItems("data/cursor", page.getItems().size());
+		return page;
+	}
+
+	/**
+	 * Returns the cache of fetched data pages, for monitoring its hit, miss and
+	 * eviction counts.
+	 */
+	public PageCache<?, MessageDTO> getPageCache() {
+		return pageCache;
 	}
 
 }
@@ -0,0 +1,85 @@
+package com.vaadin.example.rest.data;
+
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Coalesces concurrent requests for the same resource. While a request for a
+ * key is in flight, other callers asking for the same key wait for that
+ * request and share its result instead of starting their own. Results are not
+ * kept after the request completes; caching is left to the caller.
+ *
+ * @param <K> the key type, identifying the requested resource
+ * @param <V> the result type
+ */
+@SuppressWarnings("serial")
+public class SingleFlight<K, V> implements Serializable {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final ConcurrentMap<K, Mono<V>> inFlightMonos = new ConcurrentHashMap<>();
+
+	/**
+	 * Runs {@code loader} in the calling thread, unless a request for the same
+	 * key is already in flight, in which case waits for and returns its result.
+	 * Failures are propagated to all waiting callers.
+	 */
+	public V execute(K key, Supplier<V> loader) {
+		final CompletableFuture<V> flight = new CompletableFuture<>();
+		final CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+		if (existing != null) {
+			return await(existing);
+		}
+
+		try {
+			final V result = loader.get();
+			flight.complete(result);
+			return result;
+		} catch (RuntimeException | Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, flight);
+		}
+	}
+
+	/**
+	 * Reactive variant of {@link #execute(Object, Supplier)}. Subscribers of the
+	 * returned {@code Mono} share one subscription to the {@code Mono} returned
+	 * by {@code loader} while a request for the key is in flight. The request is
+	 * cancelled only when all of its subscribers have cancelled, so one caller
+	 * giving up doesn't fail the others.
+	 */
+	public Mono<V> executeMono(K key, Supplier<Mono<V>> loader) {
+		return Mono.defer(() -> inFlightMonos.computeIfAbsent(key, k -> {
+			final AtomicReference<Mono<V>> flight = new AtomicReference<>();
+			flight.set(Mono.defer(loader).doFinally(signal -> inFlightMonos.remove(k, flight.get())).flux()
+					.publish().refCount().singleOrEmpty());
+			return flight.get();
+		}));
+	}
+
+	/**
+	 * Waits for the given future, rethrowing a failure as the original
+	 * exception instead of a {@link CompletionException}.
+	 */
+	static <V> V await(CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof Error cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,460 @@
+package com.vaadin.example.rest.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Protects the application from a slow or failing upstream REST API, and the
+ * upstream from the application. There is one guard per upstream, shared by
+ * {@link RestClientService} (through {@link #interceptor()}) and
+ * {@link AsyncRestClientService} (through {@link #filter()}):
+ * <ul>
+ * <li>Bulkhead: at most {@code maxConcurrent} requests to the upstream are in
+ * flight at a time, counting until their response body has been read or
+ * released. A blocking caller waits up to {@code bulkheadWait} for a free
+ * slot, a non-blocking one doesn't wait. A hung upstream can then tie up only
+ * its own slots, not every thread and pooled connection of the
+ * application.</li>
+ * <li>Deadline: a request, including its retries, gives up after
+ * {@code deadline}; a non-blocking one also stops reading its response body
+ * then. Blocking requests can't be interrupted, so their attempts are bounded
+ * by the read timeout of the HTTP client; no retry is started that would end
+ * past the deadline.</li>
+ * <li>Retries: idempotent {@code GET} and {@code HEAD} requests that fail with
+ * an I/O error or a 502, 503 or 504 response are retried up to
+ * {@code maxAttempts} times in total, with exponential backoff starting from
+ * {@code retryBackoff}. The backoff is jittered by &plusmn;50% so that the
+ * callers of a failed upstream don't all retry at the same moment. When the
+ * attempts run out, the last 502, 503 or 504 response is passed on.</li>
+ * <li>Circuit breaker: after {@code failureThreshold} consecutive failures the
+ * circuit opens, and requests fail right away for {@code openDuration}. Then
+ * a single trial request is let through; if it succeeds the circuit closes,
+ * otherwise it stays open for another period.</li>
+ * </ul>
+ * Requests that are not let through fail with an
+ * {@link UnavailableException}. Register the guard after the
+ * {@link HttpResponseCache}, which then serves its stale copy when there is
+ * one, and after {@link ClientMetrics}, as retries are sent past the
+ * interceptors that follow the guard.
+ */
+public class UpstreamGuard {
+
+	private static final Logger log = LoggerFactory.getLogger(UpstreamGuard.class);
+
+	/**
+	 * Limits of a guard, see {@link UpstreamGuard}.
+	 */
+	public record Settings(int maxConcurrent, Duration bulkheadWait, Duration deadline, int maxAttempts,
+			Duration retryBackoff, int failureThreshold, Duration openDuration) {
+	}
+
+	/**
+	 * Thrown when a request is not sent because the circuit of the upstream is
+	 * open or its bulkhead is full.
+	 */
+	@SuppressWarnings("serial")
+	public static class UnavailableException extends IOException {
+		public UnavailableException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * State of the circuit breaker
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final String name;
+	private final Settings settings;
+	private final Semaphore bulkhead;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private boolean trialInFlight;
+
+	private final AtomicLong bulkheadRejections = new AtomicLong();
+	private final AtomicLong circuitRejections = new AtomicLong();
+	private final AtomicLong retries = new AtomicLong();
+
+	/**
+	 * @param name     name of the upstream, for logging and metrics
+	 * @param settings the limits of the guard
+	 */
+	public UpstreamGuard(String name, Settings settings) {
+		this.name = name;
+		this.settings = settings;
+		bulkhead = new Semaphore(settings.maxConcurrent());
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns an interceptor that guards the requests of a {@code RestClient}.
+	 */
+	public ClientHttpRequestInterceptor interceptor() {
+		return this::intercept;
+	}
+
+	private ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+		final long deadline = System.nanoTime() + settings.deadline().toNanos();
+		final boolean idempotent = isIdempotent(request.getMethod());
+		for (int attempt = 1;; attempt++) {
+			final ClientHttpResponse response;
+			try {
+				response = attempt(request, body, execution);
+			} catch (UnavailableException e) {
+				throw e;
+			} catch (IOException e) {
+				final long delay = idempotent ? retryDelay(attempt, deadline) : -1;
+				if (delay < 0) {
+					throw e;
+				}
+				log.debug("Retrying {} after {}", request.getURI(), e.toString());
+				sleep(delay);
+				continue;
+			}
+
+			final long delay = idempotent && isRetryable(response.getStatusCode()) ? retryDelay(attempt, deadline)
+					: -1;
+			if (delay < 0) {
+				return response;
+			}
+			log.debug("Retrying {} after status {}", request.getURI(), response.getStatusCode());
+			response.close();
+			sleep(delay);
+		}
+	}
+
+	/**
+	 * Sends one attempt of a request through the circuit breaker and the
+	 * bulkhead, and records its outcome.
+	 */
+	private ClientHttpResponse attempt(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+		allowRequest();
+		try {
+			if (!bulkhead.tryAcquire(settings.bulkheadWait().toNanos(), TimeUnit.NANOSECONDS)) {
+				rejectedByBulkhead();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			requestIgnored();
+			throw new InterruptedIOException("Interrupted while waiting for " + name);
+		}
+
+		ClientHttpResponse response = null;
+		try {
+			// the slot stays taken until the body has been read and the response
+			// closed
+			response = new GuardedResponse(execution.execute(request, body));
+			recordOutcome(response.getStatusCode());
+			return response;
+		} catch (IOException | RuntimeException e) {
+			recordFailure();
+			if (response != null) {
+				response.close();
+			} else {
+				bulkhead.release();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * A response that frees its slot in the bulkhead when it is closed.
+	 */
+	private final class GuardedResponse implements ClientHttpResponse {
+
+		private final ClientHttpResponse response;
+		private boolean released;
+
+		private GuardedResponse(ClientHttpResponse response) {
+			this.response = response;
+		}
+
+		@Override
+		public HttpStatusCode getStatusCode() throws IOException {
+			return response.getStatusCode();
+		}
+
+		@Override
+		public String getStatusText() throws IOException {
+			return response.getStatusText();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return response.getHeaders();
+		}
+
+		@Override
+		public InputStream getBody() throws IOException {
+			return response.getBody();
+		}
+
+		@Override
+		public void close() {
+			try {
+				response.close();
+			} finally {
+				if (!released) {
+					released = true;
+					bulkhead.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a filter that guards the requests of a {@code WebClient}. Retries
+	 * re-send the request from this filter on.
+	 */
+	public ExchangeFilterFunction filter() {
+		return (request, next) -> exchange(request, next, System.nanoTime() + settings.deadline().toNanos(), 1);
+	}
+
+	/**
+	 * Sends the given attempt of a request, and the attempts after it when it
+	 * fails. Retries are decided like those of {@link #interceptor()}, so the
+	 * last 502, 503 or 504 response is passed on when there are no attempts
+	 * left.
+	 */
+	private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, long deadline,
+			int attempt) {
+		final boolean idempotent = isIdempotent(request.method());
+		return attempt(request, next, deadline).materialize().flatMap(signal -> {
+			if (signal.isOnError()) {
+				final Throwable failure = signal.getThrowable();
+				final long delay = idempotent && !(failure instanceof UnavailableException)
+						? retryDelay(attempt, deadline)
+						: -1;
+				if (delay < 0) {
+					return Mono.error(failure);
+				}
+				log.debug("Retrying {} after {}", request.url(), failure.toString());
+				return Mono.delay(Duration.ofNanos(delay)).then(exchange(request, next, deadline, attempt + 1));
+			}
+			final ClientResponse response = signal.get();
+			if (response == null) {
+				return Mono.empty();
+			}
+
+			final long delay = idempotent && isRetryable(response.statusCode()) ? retryDelay(attempt, deadline)
+					: -1;
+			if (delay < 0) {
+				return Mono.just(response);
+			}
+			log.debug("Retrying {} after status {}", request.url(), response.statusCode());
+			return response.releaseBody().then(Mono.delay(Duration.ofNanos(delay)))
+					.then(exchange(request, next, deadline, attempt + 1));
+		});
+	}
+
+	/**
+	 * Sends one attempt of a non-blocking request through the circuit breaker
+	 * and the bulkhead, and records its outcome.
+	 */
+	private Mono<ClientResponse> attempt(ClientRequest request, ExchangeFunction next, long deadline) {
+		return Mono.defer(() -> {
+			final long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return Mono.error(new TimeoutException("Deadline of " + name + " exceeded"));
+			}
+			try {
+				allowRequest();
+				if (!bulkhead.tryAcquire()) {
+					rejectedByBulkhead();
+				}
+			} catch (UnavailableException e) {
+				return Mono.error(e);
+			}
+			final AtomicBoolean released = new AtomicBoolean();
+			final Runnable release = () -> {
+				if (released.compareAndSet(false, true)) {
+					bulkhead.release();
+				}
+			};
+			return next.exchange(request).timeout(Duration.ofNanos(remaining))
+					// the slot stays taken, and the deadline applies, until the
+					// body has been read or released
+					.map(response -> response.mutate().body(body -> body
+							.timeout(untilDeadline(deadline), item -> untilDeadline(deadline))
+							.doOnTerminate(release).doOnCancel(release)).build())
+					.doOnNext(response -> recordOutcome(response.statusCode()))
+					.doOnError(e -> recordFailure()).doOnCancel(this::requestIgnored).doFinally(signal -> {
+						// otherwise the response was passed on with its body
+						if (signal != SignalType.ON_COMPLETE) {
+							release.run();
+						}
+					});
+		});
+	}
+
+	/**
+	 * Emits when the deadline has passed.
+	 */
+	private static Mono<Long> untilDeadline(long deadline) {
+		return Mono.delay(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+	}
+
+	/**
+	 * Returns how long to wait before the next attempt, or -1 if there should be
+	 * no more attempts.
+	 */
+	private long retryDelay(int attempt, long deadline) {
+		if (attempt >= settings.maxAttempts()) {
+			return -1;
+		}
+		final long backoff = settings.retryBackoff().toNanos() << Math.min(attempt - 1, 20);
+		final long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff + 1);
+		if (System.nanoTime() + delay >= deadline) {
+			return -1;
+		}
+		retries.incrementAndGet();
+		return delay;
+	}
+
+	private static void sleep(long nanos) throws InterruptedIOException {
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to retry");
+		}
+	}
+
+	private static boolean isIdempotent(HttpMethod method) {
+		return method == HttpMethod.GET || method == HttpMethod.HEAD;
+	}
+
+	private static boolean isRetryable(HttpStatusCode status) {
+		return status.value() == 502 || status.value() == 503 || status.value() == 504;
+	}
+
+	/**
+	 * Lets a request through the circuit breaker, or throws if the circuit is
+	 * open or the trial request of a half open circuit is already in flight.
+	 */
+	private synchronized void allowRequest() throws UnavailableException {
+		if (state == State.OPEN && System.nanoTime() - openedAt >= settings.openDuration().toNanos()) {
+			state = State.HALF_OPEN;
+			trialInFlight = false;
+		}
+		if (state == State.OPEN || (state == State.HALF_OPEN && trialInFlight)) {
+			circuitRejections.incrementAndGet();
+			throw new UnavailableException("Circuit of " + name + " is open");
+		}
+		if (state == State.HALF_OPEN) {
+			trialInFlight = true;
+		}
+	}
+
+	private void rejectedByBulkhead() throws UnavailableException {
+		requestIgnored();
+		bulkheadRejections.incrementAndGet();
+		throw new UnavailableException("Too many concurrent requests to " + name);
+	}
+
+	/**
+	 * Failures are I/O errors, timeouts and 502, 503 and 504 responses. Other
+	 * responses, 4xx and 500 included, show that the upstream is up and
+	 * answering.
+	 */
+	private void recordOutcome(HttpStatusCode status) {
+		if (isRetryable(status)) {
+			recordFailure();
+		} else {
+			recordSuccess();
+		}
+	}
+
+	private synchronized void recordSuccess() {
+		consecutiveFailures = 0;
+		trialInFlight = false;
+		if (state != State.CLOSED) {
+			log.warn("Circuit of {} closed", name);
+			state = State.CLOSED;
+		}
+	}
+
+	private synchronized void recordFailure() {
+		consecutiveFailures++;
+		trialInFlight = false;
+		if (state == State.HALF_OPEN
+				|| (state == State.CLOSED && consecutiveFailures >= settings.failureThreshold())) {
+			log.warn("Circuit of {} opened after {} consecutive failures", name, consecutiveFailures);
+			state = State.OPEN;
+			openedAt = System.nanoTime();
+		}
+	}
+
+	/**
+	 * A request let through the circuit breaker was not sent after all, or was
+	 * cancelled; a half open circuit may try another one.
+	 */
+	private synchronized void requestIgnored() {
+		if (state == State.HALF_OPEN) {
+			trialInFlight = false;
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * Returns the amount of requests in flight.
+	 */
+	public int getInFlightCount() {
+		return settings.maxConcurrent() - bulkhead.availablePermits();
+	}
+
+	public long getBulkheadRejectionCount() {
+		return bulkheadRejections.get();
+	}
+
+	public long getCircuitRejectionCount() {
+		return circuitRejections.get();
+	}
+
+	public long getRetryCount() {
+		return retries.get();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s circuit %s, %d in flight, %d retries, %d rejected by bulkhead, %d by circuit",
+				name, state, getInFlightCount(), retries.get(), bulkheadRejections.get(), circuitRejections.get());
+	}
+}
@@ -2,16 +2,25 @@ package com.vaadin.example.rest.ui;
 
 import com.vaadin.example.rest.data.AsyncRestClientService;
 import com.vaadin.example.rest.data.CommentDTO;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
+import com.vaadin.flow.component.checkbox.Checkbox;
 import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.dataview.GridListDataView;
 import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
 import org.springframework.beans.factory.annotation.Autowired;
 
+import reactor.core.Disposable;
+
 @PageTitle("Asynchronous In-Memory DTO | Vaadin REST Examples")
 @Route(value = "async-in-memory-dto", layout = MainLayout.class)
 public class AsyncInMemoryDTOView extends VerticalLayout {
@@ -19,6 +28,10 @@ public class AsyncInMemoryDTOView extends VerticalLayout {
 	private final Grid<CommentDTO> commentsGrid;
 	private final Span statusLabel;
 	private final AsyncRestClientService service;
+	private final Checkbox streamRows;
+
+	// The fetch in progress, cancelled if the user leaves the view
+	private Disposable fetch;
 
 	public AsyncInMemoryDTOView(@Autowired AsyncRestClientService service) {
 		this.service = service;
@@ -32,7 +45,10 @@ public class AsyncInMemoryDTOView extends VerticalLayout {
 		final Button fetchComments = new Button("Fetch all comments", e -> startFetch());
 		fetchComments.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
 
-		add(fetchComments, statusLabel, commentsGrid);
+		// Alternatively, show the rows while the response is still arriving
+		streamRows = new Checkbox("Show rows as they arrive");
+
+		add(fetchComments, streamRows, statusLabel, commentsGrid);
 
 	}
 
@@ -43,14 +59,22 @@ public class AsyncInMemoryDTOView extends VerticalLayout {
 
 		// These are run immediately, to give the user feedback that we are doing
 		// something
+		statusLabel.setText(" Fetching results, please wait...");
 		statusLabel.setVisible(true);
 		commentsGrid.setEnabled(false);
 
 		final UI ui = getUI().get();
-
-		// Calling the service to start the op. The callback e provide is called when
-		// the results are available.
-		service.getAllCommentsAsync(result -> {
+		if (fetch != null) {
+			fetch.dispose();
+		}
+		if (streamRows.getValue()) {
+			startStreamingFetch(ui);
+			return;
+		}
+
+		// Calling the service to start the op. Subscribing starts the fetch, and the
+		// first callback we provide is called when the results are available.
+		fetch = service.getAllComments().subscribe(result -> {
 
 			// We now have the results. But, because this call might happen outside normal
 			// Vaadin calls, we need to make sure the HTTP Session data of this app isn't
@@ -64,6 +88,46 @@ public class AsyncInMemoryDTOView extends VerticalLayout {
 				commentsGrid.setEnabled(true);
 				commentsGrid.setItems(result);
 			});
-		});
+		}, error -> ui.access(() -> {
+
+			// The second callback is called instead if the fetch fails or times out
+			statusLabel.setText(" Fetching failed: " + error.getMessage());
+			commentsGrid.setEnabled(true);
+		}));
+	}
+
+	private void startStreamingFetch(UI ui) {
+
+		// Start with an empty list that rows are added to as they arrive
+		final GridListDataView<CommentDTO> dataView = commentsGrid.setItems(new ArrayList<>());
+		commentsGrid.setEnabled(true);
+
+		// The service parses the response one comment at a time. Instead of
+		// updating the UI for every comment, collect them in batches of up to
+		// 100 rows or 200 milliseconds, whichever comes first. Every batch is
+		// one short UI#access call and one push to the browser, so the first
+		// rows show up right away and the UI isn't locked for long at a time.
+		fetch = service.streamAllComments().bufferTimeout(100, Duration.ofMillis(200))
+				.subscribe(batch -> ui.access(() -> {
+					dataView.addItems(batch);
+					statusLabel.setText(String.format(" Fetching results, %d so far...", dataView.getItemCount()));
+				}), error -> ui.access(() -> {
+					statusLabel.setText(" Fetching failed: " + error.getMessage());
+				}), () -> ui.access(() -> {
+					statusLabel.setVisible(false);
+				}));
+	}
+
+	@Override
+	protected void onDetach(DetachEvent detachEvent) {
+		super.onDetach(detachEvent);
+
+		// The user left the view before the results arrived; cancel the fetch so
+		// it doesn't use server resources for nothing. If other users are waiting
+		// for the same results, the fetch goes on for them.
+		if (fetch != null) {
+			fetch.dispose();
+			fetch = null;
+		}
 	}
 }
@@ -0,0 +1,37 @@
+package com.vaadin.example.rest.ui;
+
+import com.vaadin.example.rest.data.ClientMetrics;
+import com.vaadin.example.rest.data.CursorPaging;
+import com.vaadin.example.rest.data.MessageDTO;
+import com.vaadin.example.rest.data.RestClientService;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+import org.springframework.beans.factory.annotation.Autowired;
+
+@PageTitle("Cursor DTO | Vaadin REST Examples")
+@Route(value = "cursor-dto", layout = MainLayout.class)
+public class CursorDTOView extends VerticalLayout {
+
+	public CursorDTOView(@Autowired RestClientService service, @Autowired ClientMetrics metrics) {
+		// This example is like the lazy DTO example, but uses a REST API that pages
+		// with cursors instead of offsets. Each page comes with a cursor that points
+		// to the next page, so reading the data in order doesn't require the REST
+		// service to find an arbitrary position in the data set.
+
+		// The Grid still asks for data by offset. CursorPaging remembers the cursors
+		// it has received and uses them when the Grid asks for the next rows, and
+		// falls back to an offset when the user jumps somewhere else.
+		final Grid<MessageDTO> dataGrid = new Grid<MessageDTO>();
+
+		dataGrid.addColumn(MessageDTO::title).setHeader("Post title").setWidth("300px");
+		dataGrid.addColumn(MessageDTO::message).setHeader("Post body").getFlexGrow();
+
+		final CursorPaging paging = new CursorPaging(service);
+		dataGrid.setItems(
+				q -> metrics.timeGridFetch("cursor-dto", () -> paging.fetch(q.getOffset(), q.getLimit())));
+
+		add(dataGrid);
+	}
+}
@@ -32,9 +32,9 @@ public class HomeView extends VerticalLayout {
 		add(new Example(InMemoryJSONView.class,
 				"Calling a REST service with pure JSON results",
 				"""
-				The second example does not use a DTO, but raw JSON instead using the Jackson library included with 
-				Spring. This approach works well when the received data is dynamic in nature, or you don't want to 
-				create a DTO.
+				The second example does not use a DTO, but reads the JSON using the Jackson library included with 
+				Spring and keeps the fields of each object in a flat row. This approach works well when the received 
+				data is dynamic in nature, or you don't want to create a DTO.
 				"""));
 
 		add(new Example(AsyncInMemoryDTOView.class,
@@ -42,17 +42,25 @@ public class HomeView extends VerticalLayout {
 				"""
 				This example fetches the same data as the first example, but asychronously. This helps when the REST
 				server is slow; starting the REST fetch does not block the application. The same method can be used
-				with the second example as well, but not for lazy providers (the last example).
+				with the second example as well, but not for lazy providers (the last examples).
 				"""));
 
 		add(new Example(LazyDTOView.class,
 				"Creating a lazy loading (paging) DataProvider that uses REST",
 				"""
-				The final example demonstrates how to create a lazy data provider for the Grid. Instead of fetching all
+				This example demonstrates how to create a lazy data provider for the Grid. Instead of fetching all
 				results, we create a DataProvider that fetches only a portion of the data at a time. This approach works
 				well for very big data sets that you don't want to load all at once.
 				"""));
 
+		add(new Example(CursorDTOView.class,
+				"Lazy loading with a cursor based REST API",
+				"""
+				A variant of the previous example for REST APIs that page with cursors instead of offsets. Every page
+				comes with a cursor to the next one, so scrolling through the data in order stays cheap for the REST
+				service however big the data set is. Offsets are still used for jumping to a random position.
+				"""));
+
 	}
 
 	private static class Example extends Section {
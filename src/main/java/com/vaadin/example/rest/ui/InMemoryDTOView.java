@@ -1,5 +1,6 @@
 package com.vaadin.example.rest.ui;
 
+import com.vaadin.example.rest.data.ClientMetrics;
 import com.vaadin.example.rest.data.CommentDTO;
 import com.vaadin.example.rest.data.RestClientService;
 import com.vaadin.flow.component.button.Button;
@@ -14,14 +15,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 @Route(value = "in-memory-dto", layout = MainLayout.class)
 public class InMemoryDTOView extends VerticalLayout {
 
-	public InMemoryDTOView(@Autowired RestClientService service) {
+	public InMemoryDTOView(@Autowired RestClientService service, @Autowired ClientMetrics metrics) {
 		// First example uses a Data Transfer Object (DTO) class that we've created. The
 		// Vaadin Grid works well with entity classes, so this is quite straightforward:
 		final Grid<CommentDTO> commentsGrid = new Grid<>(CommentDTO.class);
 
 		// Fetch all entities and show
 		final Button fetchComments = new Button("Fetch all comments",
-				e -> commentsGrid.setItems(service.getAllComments()));
+				e -> commentsGrid.setItems(metrics.timeGridFetch("in-memory-dto", service::getAllComments)));
 		fetchComments.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
 
 		add(fetchComments, commentsGrid);
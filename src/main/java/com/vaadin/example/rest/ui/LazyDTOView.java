@@ -1,9 +1,20 @@
 package com.vaadin.example.rest.ui;
 
+import com.vaadin.example.rest.data.ClientMetrics;
 import com.vaadin.example.rest.data.MessageDTO;
+import com.vaadin.example.rest.data.MessageFilter;
+import com.vaadin.example.rest.data.ReadAhead;
 import com.vaadin.example.rest.data.RestClientService;
 import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.dataview.GridLazyDataView;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.textfield.IntegerField;
+import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.QuerySortOrder;
+import com.vaadin.flow.data.provider.SortDirection;
+import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +23,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 @Route(value = "lazy-dto", layout = MainLayout.class)
 public class LazyDTOView extends VerticalLayout {
 
-	public LazyDTOView(@Autowired RestClientService service) {
+	private final TextField titleFilter;
+	private final TextField wordFilter;
+	private final IntegerField minIdFilter;
+	private final IntegerField maxIdFilter;
+
+	public LazyDTOView(@Autowired RestClientService service, @Autowired ClientMetrics metrics) {
 		// The third example demonstrates how to create a lazy data provider for the
 		// Grid. Instead of fetching all results, we fetch only a portion at a time;
 		// the Grid can do this automatically if we give it callback methods.
@@ -26,12 +42,66 @@ public class LazyDTOView extends VerticalLayout {
 		// integer.
 		final Grid<MessageDTO> dataGrid = new Grid<MessageDTO>();
 
-		dataGrid.addColumn(MessageDTO::getTitle).setHeader("Post title").setWidth("300px");
-		dataGrid.addColumn(MessageDTO::getMessage).setHeader("Post body").getFlexGrow();
+		// Sorting is done by the REST service, so the Grid only needs to know the
+		// property name to pass on for each sortable column
+		dataGrid.addColumn(MessageDTO::id).setHeader("Id").setSortProperty("id").setWidth("100px")
+				.setFlexGrow(0);
+		dataGrid.addColumn(MessageDTO::title).setHeader("Post title").setSortProperty("title").setWidth("300px");
+		dataGrid.addColumn(MessageDTO::message).setHeader("Post body").getFlexGrow();
+
+		// The Grid asks for pages of this size at multiples of it, so its requests
+		// line up with the blocks the service caches and fetches. The service
+		// splits and merges them into requests of a size adapted to the upstream.
+		dataGrid.setPageSize(service.getBlockSize());
+
+		// Filtering is done by the REST service as well
+		titleFilter = new TextField();
+		titleFilter.setPlaceholder("Title starts with");
+		titleFilter.setValueChangeMode(ValueChangeMode.LAZY);
+		wordFilter = new TextField();
+		wordFilter.setPlaceholder("Contains word");
+		wordFilter.setValueChangeMode(ValueChangeMode.LAZY);
+		minIdFilter = new IntegerField();
+		minIdFilter.setPlaceholder("From id");
+		minIdFilter.setValueChangeMode(ValueChangeMode.LAZY);
+		maxIdFilter = new IntegerField();
+		maxIdFilter.setPlaceholder("To id");
+		maxIdFilter.setValueChangeMode(ValueChangeMode.LAZY);
 
-		// Giving Grid a callback it can utilize to fetch data as needed when the user scrolls
-		dataGrid.setItems( q -> service.fetchData(q.getLimit(), q.getOffset()));
+		// Giving Grid callbacks it can utilize to fetch data as needed when the user
+		// scrolls, and to find out how many items there are. The service caches
+		// fetched pages, and ReadAhead lets it prefetch the next rows in the
+		// direction this Grid is being scrolled. The count comes from the /count
+		// endpoint of the REST API, so the Grid shows a scrollbar of the right size
+		// from the start. The time the Grid waits for its rows is recorded in the
+		// 'ui.grid.fetch' metric.
+		final ReadAhead readAhead = new ReadAhead();
+		final GridLazyDataView<MessageDTO> dataView = dataGrid.setItems(
+				q -> metrics.timeGridFetch("lazy-dto",
+						() -> service.fetchData(q.getLimit(), q.getOffset(), toFilter(q), readAhead)),
+				q -> service.count(toFilter(q)));
+
+		titleFilter.addValueChangeListener(e -> dataView.refreshAll());
+		wordFilter.addValueChangeListener(e -> dataView.refreshAll());
+		minIdFilter.addValueChangeListener(e -> dataView.refreshAll());
+		maxIdFilter.addValueChangeListener(e -> dataView.refreshAll());
+
+		add(new HorizontalLayout(titleFilter, wordFilter, minIdFilter, maxIdFilter), dataGrid);
+	}
 
-		add(dataGrid);
+	/**
+	 * Collects the sort order of the Grid and the filter field values for the
+	 * REST service.
+	 */
+	private MessageFilter toFilter(Query<MessageDTO, Void> query) {
+		String sortProperty = null;
+		boolean descending = false;
+		if (!query.getSortOrders().isEmpty()) {
+			final QuerySortOrder sortOrder = query.getSortOrders().get(0);
+			sortProperty = sortOrder.getSorted();
+			descending = sortOrder.getDirection() == SortDirection.DESCENDING;
+		}
+		return new MessageFilter(sortProperty, descending, titleFilter.getValue(), wordFilter.getValue(),
+				minIdFilter.getValue(), maxIdFilter.getValue());
 	}
 }
@@ -28,6 +28,7 @@ public class MainLayout extends AppLayout implements AfterNavigationObserver {
 	private final RouterLink asyncInMemoryDTO;
 	private final RouterLink inMemoryJSON;
 	private final RouterLink lazyDTO;
+	private final RouterLink cursorDTO;
 
 	public MainLayout() {
 		// Navigation
@@ -36,9 +37,11 @@ public class MainLayout extends AppLayout implements AfterNavigationObserver {
 		asyncInMemoryDTO = new RouterLink("Asynchronous DTO", AsyncInMemoryDTOView.class);
 		inMemoryJSON = new RouterLink("In-Memory JSON", InMemoryJSONView.class);
 		lazyDTO = new RouterLink("Lazy DTO", LazyDTOView.class);
+		cursorDTO = new RouterLink("Cursor DTO", CursorDTOView.class);
 
 		final UnorderedList list = new UnorderedList(new ListItem(home), new ListItem(inMemoryDTO),
-				new ListItem(asyncInMemoryDTO), new ListItem(inMemoryJSON), new ListItem(lazyDTO));
+				new ListItem(asyncInMemoryDTO), new ListItem(inMemoryJSON), new ListItem(lazyDTO),
+				new ListItem(cursorDTO));
 		final Nav navigation = new Nav(list);
 		addToDrawer(navigation);
 		setPrimarySection(Section.DRAWER);
@@ -55,7 +58,7 @@ public class MainLayout extends AppLayout implements AfterNavigationObserver {
 	}
 
 	private RouterLink[] getRouterLinks() {
-		return new RouterLink[] { home, inMemoryDTO, inMemoryJSON, lazyDTO };
+		return new RouterLink[] { home, inMemoryDTO, inMemoryJSON, lazyDTO, cursorDTO };
 	}
 
 	@Override
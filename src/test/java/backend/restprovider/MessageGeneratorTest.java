@@ -0,0 +1,70 @@
+package backend.restprovider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.apache.commons.lang3.text.WordUtils;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * The text generated from the normalized display words is the same as the
+ * text the generator used to build by joining the raw words and then
+ * capitalizing and removing punctuation, so the data set served for a seed
+ * didn't change.
+ */
+class MessageGeneratorTest {
+
+	private static final int ROWS = 20_000;
+
+	@ParameterizedTest
+	@ValueSource(longs = { 0, 1, 42, -7, Long.MAX_VALUE })
+	void textIsTheSameAsTheJoinedWords(long seed) {
+		final MessageGenerator generator = new MessageGenerator(seed);
+		final String[] words = rawWords();
+		final short[] titles = new short[MessageGenerator.TITLE_WORDS];
+		final short[] messages = new short[MessageGenerator.MESSAGE_WORDS];
+
+		// the first rows, and a sample from the whole index range
+		final SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < ROWS; i++) {
+			final int index = i < ROWS / 2 ? i : random.nextInt(Integer.MAX_VALUE);
+			generator.generateWords(index, titles, 0, messages, 0);
+			final String title = join(words, titles);
+			final String message = join(words, messages);
+
+			final MessageDto item = generator.generate(index);
+			assertEquals(index, item.getId());
+			assertEquals(title, item.getTitle(), "title of row " + index);
+			assertEquals(message, item.getMessage(), "message of row " + index);
+			assertEquals(title, generator.generateTitle(index), "title of row " + index);
+			assertEquals(title, generator.toText(titles, 0, titles.length), "title of row " + index);
+			assertEquals(message, generator.toText(messages, 0, messages.length), "message of row " + index);
+		}
+	}
+
+	/**
+	 * The rendering of the generator before the display words.
+	 */
+	@SuppressWarnings("deprecation")
+	private static String join(String[] words, short[] wordIndexes) {
+		final StringBuilder sb = new StringBuilder();
+		for (short wordIndex : wordIndexes) {
+			sb.append(words[wordIndex]);
+			sb.append(" ");
+		}
+		return (WordUtils.capitalizeFully(sb.toString().trim()) + ".").replace(".", "").replace(",", "");
+	}
+
+	/**
+	 * The dictionary before normalizing.
+	 */
+	private static String[] rawWords() {
+		final String[] words = new String[MessageGenerator.getWordCount()];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = MessageGenerator.getRawWord(i);
+		}
+		return words;
+	}
+}
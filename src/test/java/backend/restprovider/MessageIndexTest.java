@@ -0,0 +1,102 @@
+package backend.restprovider;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The counts and pages of every combination of sort order, direction, title
+ * prefix, word and id range are the same as sorting and filtering all items
+ * one by one.
+ */
+class MessageIndexTest {
+
+	private static final int SIZE = 2000;
+
+	private final MessageGenerator generator = new MessageGenerator(7);
+	private final MessageIndex index = new MessageIndex(SIZE, generator);
+
+	@Test
+	void resultsMatchFilteringAllItems() {
+		final List<MessageDto> items = new ArrayList<>();
+		for (int id = 0; id < SIZE; id++) {
+			items.add(generator.generate(id));
+		}
+		final String commonPrefix = items.get(0).getTitle().substring(0, 1);
+
+		final String[] prefixes = { null, commonPrefix, commonPrefix.toLowerCase(Locale.ROOT),
+				items.get(123).getTitle().substring(0, 8), "Zzz" };
+		final String[] words = { null, "et", "IPSUM", "vulputate", "nosuchword" };
+		final Integer[][] idRanges = { { null, null }, { 100, 400 }, { 1500, null }, { null, 10 }, { 500, 400 },
+				{ -5, 5000 } };
+
+		int queries = 0;
+		for (String sort : List.of("id", "title")) {
+			for (boolean descending : List.of(false, true)) {
+				for (String prefix : prefixes) {
+					for (String word : words) {
+						for (Integer[] idRange : idRanges) {
+							final MessageQuery query = new MessageQuery(sort, descending, prefix, word, idRange[0],
+									idRange[1]);
+							final int[] expected = expected(items, query);
+
+							assertEquals(expected.length, index.count(query), query.toString());
+							assertArrayEquals(expected, index.ids(query, 0, SIZE), query.toString());
+							// pages from the middle and past the end
+							final int offset = expected.length / 3;
+							assertArrayEquals(Arrays.copyOfRange(expected, offset, Math.min(offset + 50, expected.length)),
+									index.ids(query, offset, 50), query.toString());
+							assertEquals(0, index.ids(query, expected.length + 1, 50).length, query.toString());
+							queries++;
+						}
+					}
+				}
+			}
+		}
+		assertEquals(2 * 2 * prefixes.length * words.length * idRanges.length, queries);
+	}
+
+	/**
+	 * The ids of the matching items, filtered and sorted one by one. Equal
+	 * titles are in id order, and descending order reverses the whole result.
+	 */
+	private static int[] expected(List<MessageDto> items, MessageQuery query) {
+		Comparator<MessageDto> order = Comparator.comparingInt(MessageDto::getId);
+		if (query.sort().equals("title")) {
+			order = Comparator.comparing(MessageDto::getTitle, String.CASE_INSENSITIVE_ORDER).thenComparing(order);
+		}
+		final int[] ids = items.stream().filter(item -> matches(item, query)).sorted(order)
+				.mapToInt(MessageDto::getId).toArray();
+		if (query.descending()) {
+			for (int i = 0; i < ids.length / 2; i++) {
+				final int swap = ids[i];
+				ids[i] = ids[ids.length - 1 - i];
+				ids[ids.length - 1 - i] = swap;
+			}
+		}
+		return ids;
+	}
+
+	private static boolean matches(MessageDto item, MessageQuery query) {
+		if (query.minId() != null && item.getId() < query.minId()
+				|| query.maxId() != null && item.getId() > query.maxId()) {
+			return false;
+		}
+		if (query.titlePrefix() != null
+				&& !item.getTitle().regionMatches(true, 0, query.titlePrefix(), 0, query.titlePrefix().length())) {
+			return false;
+		}
+		if (query.word() != null) {
+			final String text = (item.getTitle() + " " + item.getMessage()).toLowerCase(Locale.ROOT);
+			return Arrays.asList(text.split(" ")).contains(query.word());
+		}
+		return true;
+	}
+}
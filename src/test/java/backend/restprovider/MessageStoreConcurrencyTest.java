@@ -0,0 +1,147 @@
+package backend.restprovider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Many threads reading the same, overlapping indexes of a fresh store at once.
+ * Every reader must get a fully built item with the content the generator
+ * defines for its index, and stores that keep their items must generate each
+ * of them only once.
+ */
+class MessageStoreConcurrencyTest {
+
+	// several chunks, the last one partial
+	private static final int SIZE = 3 * ChunkedMessageStore.CHUNK_SIZE + 100;
+	private static final int THREADS = 16;
+	private static final int ROUNDS = 3;
+
+	private final MessageGenerator reference = new MessageGenerator(42);
+	private final CountingGenerator generator = new CountingGenerator(42, SIZE);
+
+	@TempDir
+	Path tempDir;
+
+	@ParameterizedTest
+	@ValueSource(strings = { "chunked", "columnar", "stateless", "mapped" })
+	void concurrentReadsOfOverlappingIndexes(String storage) throws Exception {
+		final MessageStore store = switch (storage) {
+		case "chunked" -> new ChunkedMessageStore(SIZE, generator::generate);
+		case "columnar" -> new ColumnarMessageStore(SIZE, generator);
+		case "stateless" -> new StatelessMessageStore(SIZE, generator);
+		case "mapped" -> new MappedMessageStore(SIZE, generator, tempDir.resolve("messages.dat"));
+		default -> throw new IllegalArgumentException(storage);
+		};
+
+		final CyclicBarrier start = new CyclicBarrier(THREADS);
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final List<Future<MessageDto[]>> readers = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			final int thread = t;
+			readers.add(executor.submit(() -> {
+				final MessageDto[] seen = new MessageDto[SIZE];
+				start.await();
+				for (int round = 0; round < ROUNDS; round++) {
+					// every thread walks all indexes from its own starting point,
+					// so they keep running into chunks others are generating
+					for (int i = 0; i < SIZE; i++) {
+						final int index = (i + thread * SIZE / THREADS) % SIZE;
+						seen[index] = store.get(index);
+					}
+					// and reads ranges that straddle chunk boundaries
+					final int offset = (thread * 37) % (SIZE - 300);
+					final List<MessageDto> range = store.getRange(offset, 300);
+					for (int i = 0; i < range.size(); i++) {
+						assertEquals(offset + i, range.get(i).getId());
+					}
+				}
+				return seen;
+			}));
+		}
+
+		final List<MessageDto[]> results = new ArrayList<>();
+		for (Future<MessageDto[]> reader : readers) {
+			results.add(reader.get(60, TimeUnit.SECONDS));
+		}
+		executor.shutdown();
+
+		for (int index = 0; index < SIZE; index++) {
+			final MessageDto expected = reference.generate(index);
+			for (MessageDto[] seen : results) {
+				final MessageDto item = seen[index];
+				assertNotNull(item, "item " + index);
+				assertEquals(index, item.getId());
+				assertEquals(expected.getTitle(), item.getTitle(), "title of item " + index);
+				assertEquals(expected.getMessage(), item.getMessage(), "message of item " + index);
+				if (storage.equals("chunked")) {
+					// the one instance that was published
+					assertSame(results.get(0)[index], item);
+				}
+			}
+		}
+
+		final long reads = (long) THREADS * ROUNDS * (SIZE + 300);
+		if (storage.equals("stateless")) {
+			assertEquals(reads, store.getGeneratedCount());
+			assertEquals(reads, generator.total());
+		} else {
+			for (int index = 0; index < SIZE; index++) {
+				assertEquals(1, generator.count(index), "generations of item " + index);
+			}
+			assertEquals(SIZE, store.getGeneratedCount());
+		}
+	}
+
+	/**
+	 * Counts how many times each row is generated.
+	 */
+	private static class CountingGenerator extends MessageGenerator {
+
+		private final AtomicIntegerArray counts;
+
+		CountingGenerator(long seed, int size) {
+			super(seed);
+			counts = new AtomicIntegerArray(size);
+		}
+
+		@Override
+		public MessageDto generate(int dataIndex) {
+			counts.incrementAndGet(dataIndex);
+			return super.generate(dataIndex);
+		}
+
+		@Override
+		public void generateWords(int dataIndex, short[] titles, int titleOffset, short[] messages,
+				int messageOffset) {
+			counts.incrementAndGet(dataIndex);
+			super.generateWords(dataIndex, titles, titleOffset, messages, messageOffset);
+		}
+
+		int count(int index) {
+			return counts.get(index);
+		}
+
+		long total() {
+			long total = 0;
+			for (int i = 0; i < counts.length(); i++) {
+				total += counts.get(i);
+			}
+			return total;
+		}
+	}
+}
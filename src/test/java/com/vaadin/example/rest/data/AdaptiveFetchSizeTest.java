@@ -0,0 +1,91 @@
+package com.vaadin.example.rest.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The fetch size chosen for upstreams whose latency is a fixed overhead plus a
+ * time per item.
+ */
+class AdaptiveFetchSizeTest {
+
+	private static final int BLOCK = 50;
+	private static final Duration TARGET = Duration.ofMillis(200);
+
+	@Test
+	void probesByBlocksBeforeEnoughSamples() {
+		final AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(BLOCK, 5000, TARGET, Long.MAX_VALUE);
+		assertEquals(4 * BLOCK, fetchSize.getFetchSize());
+
+		// faster than half the target: one block more
+		fetchSize.record(200, millis(50), 0);
+		assertEquals(250, fetchSize.getFetchSize());
+		// within the target: unchanged
+		fetchSize.record(250, millis(150), 0);
+		assertEquals(250, fetchSize.getFetchSize());
+		// slower than the target: one block less
+		fetchSize.record(250, millis(300), 0);
+		assertEquals(200, fetchSize.getFetchSize());
+		assertEquals(4, fetchSize.getFetchBlocks());
+	}
+
+	@Test
+	void keepsProbingWhileRequestSizesDontVary() {
+		final AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(BLOCK, 5000, TARGET, Long.MAX_VALUE);
+		for (int i = 0; i < 10; i++) {
+			fetchSize.record(200, millis(50), 0);
+		}
+		assertEquals(200 + 10 * BLOCK, fetchSize.getFetchSize());
+	}
+
+	@Test
+	void fillsTheTargetLatencyAfterTheOverhead() {
+		final AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(BLOCK, 5000, TARGET, Long.MAX_VALUE);
+		recordLinear(fetchSize, millis(50), millis(0.08), 0);
+		// (200 ms - 50 ms) / 0.08 ms = 1875 items, in whole blocks
+		assertEquals(1850, fetchSize.getFetchSize());
+	}
+
+	@Test
+	void slowUpstreamGetsTransferTimeMatchingTheOverhead() {
+		final AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(BLOCK, 5000, TARGET, Long.MAX_VALUE);
+		recordLinear(fetchSize, millis(400), millis(0.15), 0);
+		// the overhead is over the target, so 400 ms / 0.15 ms = 2666 items
+		assertEquals(2650, fetchSize.getFetchSize());
+	}
+
+	@Test
+	void staysWithinTheMaximumResponseSize() {
+		final AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(BLOCK, 5000, TARGET, 512_000);
+		recordLinear(fetchSize, millis(50), millis(0.08), 1000);
+		// 512 000 bytes / 1000 bytes per item
+		assertEquals(500, fetchSize.getFetchSize());
+	}
+
+	@Test
+	void staysWithinTheMaximumOfTheUpstream() {
+		final AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(BLOCK, 480, TARGET, Long.MAX_VALUE);
+		recordLinear(fetchSize, millis(50), millis(0.08), 0);
+		// whole blocks of the 480 items the upstream allows
+		assertEquals(450, fetchSize.getFetchSize());
+	}
+
+	/**
+	 * Records requests of varying sizes, each taking the overhead plus the time
+	 * per item.
+	 */
+	private static void recordLinear(AdaptiveFetchSize fetchSize, long overheadNanos, long nanosPerItem,
+			long bytesPerItem) {
+		for (int i = 0; i < 10; i++) {
+			final int items = (i % 5 + 1) * 100;
+			fetchSize.record(items, overheadNanos + items * nanosPerItem, items * bytesPerItem);
+		}
+	}
+
+	private static long millis(double millis) {
+		return (long) (millis * 1_000_000);
+	}
+}
@@ -0,0 +1,134 @@
+package com.vaadin.example.rest.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A data set loaded by a stub that returns the number of the load, refreshed
+ * on an executor that runs its tasks only when the test says so.
+ */
+class DatasetCacheTest {
+
+	private static final Duration HOUR = Duration.ofHours(1);
+
+	private int loads;
+	private RuntimeException loadFailure;
+	private final Deque<Runnable> refreshes = new ArrayDeque<>();
+
+	private List<Integer> load() {
+		if (loadFailure != null) {
+			throw loadFailure;
+		}
+		return List.of(++loads);
+	}
+
+	@Test
+	void freshListIsSharedWithoutLoading() {
+		final DatasetCache<Integer> cache = new DatasetCache<>("test", this::load, HOUR, HOUR, 10, refreshes::add);
+
+		final List<Integer> first = cache.get();
+		assertSame(first, cache.get());
+		assertEquals(1, loads);
+		assertEquals(0, refreshes.size());
+	}
+
+	@Test
+	void staleListIsServedWhileRefreshing() {
+		final DatasetCache<Integer> cache = new DatasetCache<>("test", this::load, Duration.ZERO, HOUR, 10,
+				refreshes::add);
+
+		assertEquals(List.of(1), cache.get());
+		// stale: served right away, one refresh at a time
+		assertEquals(List.of(1), cache.get());
+		assertEquals(List.of(1), cache.get());
+		assertEquals(1, refreshes.size());
+		assertEquals(1, loads);
+
+		refreshes.remove().run();
+		assertEquals(2, loads);
+		assertEquals(List.of(2), cache.get());
+		assertEquals(1, refreshes.size());
+	}
+
+	@Test
+	void failedRefreshKeepsServingTheStaleList() {
+		final DatasetCache<Integer> cache = new DatasetCache<>("test", this::load, Duration.ZERO, HOUR, 10,
+				refreshes::add);
+
+		assertEquals(List.of(1), cache.get());
+		cache.get();
+		loadFailure = new IllegalStateException("upstream down");
+		refreshes.remove().run();
+
+		assertEquals(List.of(1), cache.get());
+		// and tries again
+		assertEquals(1, refreshes.size());
+	}
+
+	@Test
+	void expiredListIsLoadedAgain() {
+		final DatasetCache<Integer> cache = new DatasetCache<>("test", this::load, Duration.ZERO, Duration.ZERO, 10,
+				refreshes::add);
+
+		assertEquals(List.of(1), cache.get());
+		assertEquals(List.of(2), cache.get());
+		assertEquals(0, refreshes.size());
+	}
+
+	@Test
+	void expiredListIsServedWhenLoadingFails() {
+		final DatasetCache<Integer> cache = new DatasetCache<>("test", this::load, Duration.ZERO, Duration.ZERO, 10,
+				refreshes::add);
+
+		assertEquals(List.of(1), cache.get());
+		loadFailure = new IllegalStateException("upstream down");
+		assertEquals(List.of(1), cache.get());
+	}
+
+	@Test
+	void failureIsThrownWithoutACachedList() {
+		final DatasetCache<Integer> cache = new DatasetCache<>("test", this::load, HOUR, HOUR, 10, refreshes::add);
+
+		loadFailure = new IllegalStateException("upstream down");
+		assertSame(loadFailure, assertThrows(IllegalStateException.class, cache::get));
+	}
+
+	@Test
+	void rejectedRefreshIsTriedAgain() {
+		final Executor rejecting = task -> {
+			refreshes.add(task);
+			if (refreshes.size() == 1) {
+				throw new RejectedExecutionException("busy");
+			}
+		};
+		final DatasetCache<Integer> cache = new DatasetCache<>("test", this::load, Duration.ZERO, HOUR, 10,
+				rejecting);
+
+		assertEquals(List.of(1), cache.get());
+		assertEquals(List.of(1), cache.get());
+		// the rejected refresh doesn't block the next one
+		assertEquals(List.of(1), cache.get());
+		assertEquals(2, refreshes.size());
+
+		refreshes.removeLast().run();
+		assertEquals(List.of(2), cache.get());
+	}
+
+	@Test
+	void largeDataSetIsNotCached() {
+		final DatasetCache<Integer> cache = new DatasetCache<>("test", this::load, HOUR, HOUR, 0, refreshes::add);
+
+		assertEquals(List.of(1), cache.get());
+		assertEquals(List.of(2), cache.get());
+	}
+}
@@ -0,0 +1,189 @@
+package com.vaadin.example.rest.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+/**
+ * Requests through the cache to an upstream stub that answers with queued
+ * responses, checking what reaches the upstream, what the caller gets and how
+ * the request is counted.
+ */
+class HttpResponseCacheTest {
+
+	private static final URI URL = URI.create("http://upstream.test/data?limit=50&offset=0");
+
+	private final Upstream upstream = new Upstream();
+
+	@Test
+	void freshResponseIsServedWithoutUpstream() throws IOException {
+		final HttpResponseCache cache = new HttpResponseCache(1024, Duration.ZERO);
+		upstream.respond(ok("one", "max-age=60", "\"1\""));
+
+		assertEquals("one", body(get(cache)));
+		final ClientHttpResponse cached = get(cache);
+		assertEquals("one", body(cached));
+		assertEquals("HttpResponseCache; hit", cached.getHeaders().getFirst("Cache-Status"));
+
+		assertEquals(1, upstream.requests.size());
+		assertCounts(cache, 1, 0, 1, 0);
+	}
+
+	@Test
+	void staleResponseIsRevalidatedWithItsETag() throws IOException {
+		final HttpResponseCache cache = new HttpResponseCache(1024, Duration.ZERO);
+		upstream.respond(ok("one", "max-age=0", "\"1\""));
+		upstream.respond(notModified("max-age=60"));
+
+		assertEquals("one", body(get(cache)));
+		final ClientHttpResponse revalidated = get(cache);
+		assertEquals("one", body(revalidated));
+		assertEquals(HttpStatus.OK, revalidated.getStatusCode());
+		assertEquals("\"1\"", upstream.requests.get(1).getIfNoneMatch().get(0));
+
+		// the 304 renewed it with its max-age
+		assertEquals("one", body(get(cache)));
+		assertEquals(2, upstream.requests.size());
+		assertCounts(cache, 1, 1, 1, 0);
+	}
+
+	@Test
+	void changedResponseReplacesTheStaleOneAndIsAMiss() throws IOException {
+		final HttpResponseCache cache = new HttpResponseCache(1024, Duration.ZERO);
+		upstream.respond(ok("one", "max-age=0", "\"1\""));
+		upstream.respond(ok("two", "max-age=60", "\"2\""));
+
+		assertEquals("one", body(get(cache)));
+		assertEquals("two", body(get(cache)));
+		assertEquals("two", body(get(cache)));
+
+		assertEquals(2, upstream.requests.size());
+		assertCounts(cache, 1, 0, 2, 0);
+	}
+
+	@Test
+	void noStoreResponseIsNotCached() throws IOException {
+		final HttpResponseCache cache = new HttpResponseCache(1024, Duration.ZERO);
+		upstream.respond(ok("one", "no-store, max-age=60", "\"1\""));
+		upstream.respond(ok("two", "no-store, max-age=60", "\"1\""));
+
+		assertEquals("one", body(get(cache)));
+		assertEquals("two", body(get(cache)));
+		assertNull(upstream.requests.get(1).getFirst(HttpHeaders.IF_NONE_MATCH));
+		assertEquals(0, cache.getResponseCount());
+		assertCounts(cache, 0, 0, 2, 0);
+	}
+
+	@Test
+	void staleResponseIsServedWhenTheUpstreamFails() throws IOException {
+		final HttpResponseCache cache = new HttpResponseCache(1024, Duration.ofHours(1));
+		upstream.respond(ok("one", "max-age=0", "\"1\""));
+		upstream.fail(new IOException("connection refused"));
+		upstream.respond(new MockClientHttpResponse(new byte[0], HttpStatus.SERVICE_UNAVAILABLE));
+
+		assertEquals("one", body(get(cache)));
+		final ClientHttpResponse stale = get(cache);
+		assertEquals("one", body(stale));
+		assertEquals("HttpResponseCache; fwd=stale; detail=stale-if-error",
+				stale.getHeaders().getFirst("Cache-Status"));
+		assertEquals("one", body(get(cache)));
+
+		// the failed revalidations are misses, not revalidations
+		assertCounts(cache, 0, 0, 3, 2);
+	}
+
+	@Test
+	void failureIsPassedOnWithoutStaleIfError() throws IOException {
+		final HttpResponseCache cache = new HttpResponseCache(1024, Duration.ZERO);
+		upstream.respond(ok("one", "max-age=0", "\"1\""));
+		final IOException failure = new IOException("connection refused");
+		upstream.fail(failure);
+
+		assertEquals("one", body(get(cache)));
+		assertEquals(failure, assertThrows(IOException.class, () -> get(cache)));
+		assertCounts(cache, 0, 0, 2, 0);
+	}
+
+	private ClientHttpResponse get(HttpResponseCache cache) throws IOException {
+		final ClientHttpRequestInterceptor interceptor = cache.interceptor();
+		return interceptor.intercept(new MockClientHttpRequest(HttpMethod.GET, URL), new byte[0], upstream);
+	}
+
+	private static void assertCounts(HttpResponseCache cache, long hits, long revalidations, long misses,
+			long stale) {
+		assertEquals(hits, cache.getHitCount(), "hits");
+		assertEquals(revalidations, cache.getRevalidationCount(), "revalidations");
+		assertEquals(misses, cache.getMissCount(), "misses");
+		assertEquals(stale, cache.getStaleCount(), "stale");
+	}
+
+	private static String body(ClientHttpResponse response) throws IOException {
+		try (response) {
+			return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static MockClientHttpResponse ok(String body, String cacheControl, String etag) {
+		final MockClientHttpResponse response = new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8),
+				HttpStatus.OK);
+		response.getHeaders().setCacheControl(cacheControl);
+		response.getHeaders().setETag(etag);
+		return response;
+	}
+
+	private static MockClientHttpResponse notModified(String cacheControl) {
+		final MockClientHttpResponse response = new MockClientHttpResponse(new byte[0], HttpStatus.NOT_MODIFIED);
+		response.getHeaders().setCacheControl(cacheControl);
+		return response;
+	}
+
+	/**
+	 * Answers every request with the next queued response or failure, and keeps
+	 * the headers of the requests.
+	 */
+	private static class Upstream implements ClientHttpRequestExecution {
+
+		private final Deque<Object> answers = new ArrayDeque<>();
+		private final List<HttpHeaders> requests = new ArrayList<>();
+
+		void respond(ClientHttpResponse response) {
+			answers.add(response);
+		}
+
+		void fail(IOException failure) {
+			answers.add(failure);
+		}
+
+		@Override
+		public ClientHttpResponse execute(HttpRequest request, byte[] body) throws IOException {
+			final HttpHeaders headers = new HttpHeaders();
+			headers.addAll(request.getHeaders());
+			requests.add(headers);
+			final Object answer = answers.remove();
+			if (answer instanceof IOException failure) {
+				throw failure;
+			}
+			return (ClientHttpResponse) answer;
+		}
+	}
+}
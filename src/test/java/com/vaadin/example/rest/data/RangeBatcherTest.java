@@ -0,0 +1,123 @@
+package com.vaadin.example.rest.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.vaadin.example.rest.data.RangeBatcher.Range;
+
+/**
+ * Callers fetching ranges at the same time, through a fetcher that returns
+ * the offset of each range as its only item and records the batches it gets.
+ */
+class RangeBatcherTest {
+
+	private static final int CALLERS = 8;
+
+	private final List<List<Range>> batches = new CopyOnWriteArrayList<>();
+	private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void callersWithinTheWindowShareOneRequestPerKey() throws Exception {
+		final RangeBatcher<String, Integer> batcher = new RangeBatcher<>(Duration.ofMillis(500), 20,
+				this::offsets);
+
+		final List<List<List<Integer>>> results = callTogether(caller -> batcher
+				.fetch(caller % 2 == 0 ? "even" : "odd", List.of(new Range(caller * 100, 50))));
+
+		for (int caller = 0; caller < CALLERS; caller++) {
+			assertEquals(List.of(List.of(caller * 100)), results.get(caller));
+		}
+		// one batch for each key
+		assertEquals(2, batches.size());
+		assertEquals(CALLERS / 2, batches.get(0).size());
+		assertEquals(CALLERS / 2, batches.get(1).size());
+		assertEquals(CALLERS, batcher.getRequestedRangeCount());
+		assertEquals(2, batcher.getSentBatchCount());
+	}
+
+	@Test
+	void fullBatchIsSentWithoutWaitingOutTheWindow() {
+		final RangeBatcher<String, Integer> batcher = new RangeBatcher<>(Duration.ofMinutes(1), 3, this::offsets);
+
+		final List<List<Integer>> items = assertTimeoutPreemptively(Duration.ofSeconds(10),
+				() -> batcher.fetch("key", List.of(new Range(0, 50), new Range(100, 50), new Range(200, 50))));
+
+		assertEquals(List.of(List.of(0), List.of(100), List.of(200)), items);
+		assertEquals(1, batches.size());
+	}
+
+	@Test
+	void failureReachesEveryWaitingCaller() throws Exception {
+		final IllegalStateException failure = new IllegalStateException("batch failed");
+		final RangeBatcher<String, Integer> batcher = new RangeBatcher<>(Duration.ofMillis(500), 20,
+				(key, ranges) -> {
+					batches.add(ranges);
+					throw failure;
+				});
+
+		final List<Object> results = callTogether(caller -> {
+			try {
+				return batcher.fetch("key", List.of(new Range(caller * 100, 50)));
+			} catch (RuntimeException e) {
+				return e;
+			}
+		});
+
+		assertEquals(1, batches.size());
+		for (Object result : results) {
+			assertSame(failure, result);
+		}
+	}
+
+	private List<List<Integer>> offsets(String key, List<Range> ranges) {
+		batches.add(ranges);
+		final List<List<Integer>> items = new ArrayList<>();
+		for (Range range : ranges) {
+			items.add(List.of(range.offset()));
+		}
+		return items;
+	}
+
+	private interface Caller<R> {
+		R call(int caller) throws Exception;
+	}
+
+	/**
+	 * Runs the callers at the same time, and returns their results in order.
+	 */
+	private <R> List<R> callTogether(Caller<R> call) throws Exception {
+		final CyclicBarrier start = new CyclicBarrier(CALLERS);
+		final List<Future<R>> futures = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++) {
+			final int caller = i;
+			futures.add(executor.submit(() -> {
+				start.await();
+				return call.call(caller);
+			}));
+		}
+		final List<R> results = new ArrayList<>();
+		for (Future<R> future : futures) {
+			results.add(future.get(10, TimeUnit.SECONDS));
+		}
+		return results;
+	}
+}
@@ -0,0 +1,141 @@
+package com.vaadin.example.rest.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Many threads fetching overlapping ranges of the lazily loaded data at once,
+ * from a page cache so small that blocks are evicted all the time. Blocks are
+ * then often cached by one thread while another one is about to load them,
+ * which must neither fail nor return the wrong items.
+ */
+class RestClientServiceConcurrencyTest {
+
+	private static final int SIZE = 1000;
+	private static final int BLOCK_SIZE = 50;
+	private static final int THREADS = 16;
+	private static final int FETCHES = 1000;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	void concurrentFetchesOfOverlappingRanges() throws Exception {
+		// the read-ahead caches blocks in the background, while the fetching
+		// threads are looking them up
+		final ExecutorService prefetchExecutor = Executors.newFixedThreadPool(4);
+		final RestClientService service = newService(prefetchExecutor::execute);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final List<Future<?>> fetchers = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			fetchers.add(executor.submit(() -> {
+				final ThreadLocalRandom random = ThreadLocalRandom.current();
+				final ReadAhead readAhead = new ReadAhead();
+				for (int i = 0; i < FETCHES; i++) {
+					final int limit = random.nextInt(1, 3 * BLOCK_SIZE);
+					// a few hot blocks, so threads keep meeting each other
+					final int offset = random.nextInt(4 * BLOCK_SIZE);
+					final List<MessageDTO> items = service.fetchData(limit, offset, readAhead).toList();
+					assertEquals(limit, items.size());
+					for (int j = 0; j < limit; j++) {
+						assertEquals(offset + j, items.get(j).id());
+					}
+				}
+				return null;
+			}));
+		}
+		for (Future<?> fetcher : fetchers) {
+			fetcher.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+		prefetchExecutor.shutdown();
+	}
+
+	private RestClientService newService(TaskExecutor prefetchExecutor) {
+		final HttpResponseCache responseCache = new HttpResponseCache(0, Duration.ZERO);
+		final UpstreamGuard.Settings settings = new UpstreamGuard.Settings(100, Duration.ofSeconds(1),
+				Duration.ofSeconds(10), 1, Duration.ofMillis(10), 1000, Duration.ofSeconds(1));
+		final UpstreamGuard jsonplaceholderGuard = new UpstreamGuard("jsonplaceholder", settings);
+		final UpstreamGuard localGuard = new UpstreamGuard("local", settings);
+		final ClientMetrics metrics = new ClientMetrics(new SimpleMeterRegistry(), responseCache,
+				List.of(jsonplaceholderGuard, localGuard));
+		return new RestClientService("http://jsonplaceholder.test", "http://local.test", BLOCK_SIZE,
+				2 * BLOCK_SIZE, Duration.ofMinutes(5), Duration.ZERO, Duration.ofMillis(200),
+				DataSize.ofKilobytes(512), MediaType.APPLICATION_JSON, Duration.ofMinutes(5), Duration.ofHours(1),
+				10000, prefetchExecutor, new LocalProviderStub(), responseCache, metrics,
+				jsonplaceholderGuard, localGuard);
+	}
+
+	/**
+	 * Serves the count, data and batch APIs of the local provider from memory.
+	 */
+	private class LocalProviderStub implements ClientHttpRequestFactory {
+
+		@Override
+		public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+			return new MockClientHttpRequest(httpMethod, uri) {
+				@Override
+				protected ClientHttpResponse executeInternal() throws IOException {
+					final Object body = switch (uri.getPath()) {
+					case "/count" -> SIZE;
+					case "/data" -> {
+						final var query = UriComponentsBuilder.fromUri(uri).build().getQueryParams();
+						yield items(Integer.parseInt(query.getFirst("offset")),
+								Integer.parseInt(query.getFirst("limit")));
+					}
+					case "/data/batch" -> {
+						final ArrayNode batch = mapper.createArrayNode();
+						for (JsonNode range : mapper.readTree(getBodyAsBytes())) {
+							batch.add(items(range.get("offset").asInt(), range.get("limit").asInt()));
+						}
+						yield batch;
+					}
+					default -> throw new IOException("Unexpected request " + uri);
+					};
+					final MockClientHttpResponse response = new MockClientHttpResponse(
+							mapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+					response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+					return response;
+				}
+			};
+		}
+
+		private ArrayNode items(int offset, int limit) {
+			final ArrayNode items = mapper.createArrayNode();
+			for (int id = offset; id < Math.min(offset + limit, SIZE); id++) {
+				items.addObject().put("id", id).put("title", "Title " + id).put("message", "Message " + id);
+			}
+			return items;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.vaadin.example.rest.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Concurrent callers of {@link SingleFlight#execute} while the upstream is
+ * blocked, so that all of them are waiting for the same request.
+ */
+class SingleFlightTest {
+
+	private static final int CALLERS = 16;
+
+	private final SingleFlight<String, List<String>> flight = new SingleFlight<>();
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+	private final CountDownLatch upstreamBlocked = new CountDownLatch(1);
+
+	@Test
+	void concurrentCallersShareOneRequest() throws Exception {
+		final List<String> response = List.of("a", "b");
+		final AtomicReferenceArray<Object> results = call(() -> {
+			upstreamCalls.incrementAndGet();
+			await(upstreamBlocked);
+			return response;
+		});
+
+		assertEquals(1, upstreamCalls.get());
+		for (int i = 0; i < CALLERS; i++) {
+			assertSame(response, results.get(i), "result of caller " + i);
+		}
+
+		// results are not kept after the request
+		flight.execute("key", () -> {
+			upstreamCalls.incrementAndGet();
+			return response;
+		});
+		assertEquals(2, upstreamCalls.get());
+	}
+
+	@Test
+	void failureReachesEveryWaitingCaller() throws Exception {
+		final IllegalStateException failure = new IllegalStateException("upstream failed");
+		final AtomicReferenceArray<Object> results = call(() -> {
+			upstreamCalls.incrementAndGet();
+			await(upstreamBlocked);
+			throw failure;
+		});
+
+		assertEquals(1, upstreamCalls.get());
+		for (int i = 0; i < CALLERS; i++) {
+			assertSame(failure, results.get(i), "exception of caller " + i);
+		}
+	}
+
+	/**
+	 * Starts the callers, waits until all of them are waiting, then unblocks the
+	 * upstream. Returns the result or exception each caller got.
+	 */
+	private AtomicReferenceArray<Object> call(Supplier<List<String>> upstream) throws InterruptedException {
+		final AtomicReferenceArray<Object> results = new AtomicReferenceArray<>(CALLERS);
+		final CountDownLatch started = new CountDownLatch(CALLERS);
+		final List<Thread> callers = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++) {
+			final int caller = i;
+			final Thread thread = new Thread(() -> {
+				started.countDown();
+				try {
+					results.set(caller, flight.execute("key", upstream));
+				} catch (RuntimeException e) {
+					results.set(caller, e);
+				}
+			});
+			callers.add(thread);
+			thread.start();
+		}
+
+		// one caller waits for the upstream, the others for its request
+		started.await();
+		for (Thread caller : callers) {
+			while (caller.getState() != Thread.State.WAITING) {
+				Thread.sleep(1);
+			}
+		}
+		upstreamBlocked.countDown();
+
+		for (Thread caller : callers) {
+			caller.join(10_000);
+		}
+		return results;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
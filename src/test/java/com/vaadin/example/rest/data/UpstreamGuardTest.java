@@ -0,0 +1,133 @@
+package com.vaadin.example.rest.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A request holds its slot in the bulkhead until its response body is done
+ * with, not only until the response headers have arrived. Non-blocking
+ * requests are retried and open the circuit like blocking ones.
+ */
+class UpstreamGuardTest {
+
+	private final UpstreamGuard guard = new UpstreamGuard("test", new UpstreamGuard.Settings(1, Duration.ZERO,
+			Duration.ofMillis(500), 1, Duration.ofMillis(10), 10, Duration.ofSeconds(1)));
+
+	@Test
+	void blockingRequestHoldsSlotUntilResponseIsClosed() throws Exception {
+		final MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI.create("http://test/data"));
+		final ClientHttpResponse response = guard.interceptor().intercept(request, new byte[0],
+				(req, body) -> new MockClientHttpResponse("[]".getBytes(StandardCharsets.UTF_8), HttpStatus.OK));
+
+		assertEquals(1, guard.getInFlightCount());
+		// no slot left for another request while the body is being read
+		assertThrows(UpstreamGuard.UnavailableException.class, () -> guard.interceptor().intercept(request,
+				new byte[0], (req, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK)));
+
+		response.getBody().readAllBytes();
+		response.close();
+		assertEquals(0, guard.getInFlightCount());
+		// closing again doesn't free a slot twice
+		response.close();
+		assertEquals(0, guard.getInFlightCount());
+	}
+
+	@Test
+	void reactiveRequestHoldsSlotUntilBodyIsRead() {
+		final ClientResponse response = guard.filter()
+				.filter(request(), req -> Mono.just(ClientResponse.create(HttpStatus.OK)
+						.body(Flux.just(buffer("[]"))).build()))
+				.block();
+
+		assertEquals(1, guard.getInFlightCount());
+		assertEquals("[]", response.bodyToMono(String.class).block());
+		assertEquals(0, guard.getInFlightCount());
+	}
+
+	@Test
+	void reactiveDeadlineCoversTheBody() {
+		final ClientResponse response = guard.filter()
+				.filter(request(), req -> Mono.just(ClientResponse.create(HttpStatus.OK)
+						.body(Flux.concat(Flux.just(buffer("[")), Flux.never())).build()))
+				.block();
+
+		final Exception e = assertThrows(Exception.class, () -> response.bodyToMono(String.class).block());
+		assertInstanceOf(TimeoutException.class, e.getCause());
+		assertEquals(0, guard.getInFlightCount());
+	}
+
+	@Test
+	void reactiveRetriesPassOnTheLastRetryableResponse() {
+		final UpstreamGuard retrying = new UpstreamGuard("test", new UpstreamGuard.Settings(4, Duration.ZERO,
+				Duration.ofSeconds(5), 3, Duration.ofMillis(1), 10, Duration.ofSeconds(1)));
+		final AtomicInteger exchanges = new AtomicInteger();
+
+		final ClientResponse response = retrying.filter()
+				.filter(request(), req -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE)
+						.body(Flux.just(buffer("busy " + exchanges.incrementAndGet()))).build()))
+				.block();
+
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.statusCode());
+		assertEquals(3, exchanges.get());
+		assertEquals(2, retrying.getRetryCount());
+		// the bodies of the retried responses were released
+		assertEquals(1, retrying.getInFlightCount());
+		assertEquals("busy 3", response.bodyToMono(String.class).block());
+		assertEquals(0, retrying.getInFlightCount());
+	}
+
+	@Test
+	void reactiveFailuresOpenTheCircuit() {
+		final UpstreamGuard breaking = new UpstreamGuard("test", new UpstreamGuard.Settings(4, Duration.ZERO,
+				Duration.ofSeconds(5), 1, Duration.ofMillis(1), 2, Duration.ofMinutes(1)));
+		final AtomicInteger exchanges = new AtomicInteger();
+		final ExchangeFunction upstream = req -> {
+			exchanges.incrementAndGet();
+			return Mono.just(ClientResponse.create(HttpStatus.BAD_GATEWAY).build());
+		};
+
+		for (int i = 0; i < 2; i++) {
+			final ClientResponse response = breaking.filter().filter(request(), upstream).block();
+			assertEquals(HttpStatus.BAD_GATEWAY, response.statusCode());
+			response.releaseBody().block();
+		}
+		assertEquals(UpstreamGuard.State.OPEN, breaking.getState());
+
+		final Exception e = assertThrows(Exception.class,
+				() -> breaking.filter().filter(request(), upstream).block());
+		assertInstanceOf(UpstreamGuard.UnavailableException.class, e.getCause());
+		assertEquals(2, exchanges.get());
+		assertEquals(1, breaking.getCircuitRejectionCount());
+		assertEquals(0, breaking.getInFlightCount());
+	}
+
+	private static ClientRequest request() {
+		return ClientRequest.create(HttpMethod.GET, URI.create("http://test/data")).build();
+	}
+
+	private static DataBuffer buffer(String content) {
+		return DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes(StandardCharsets.UTF_8));
+	}
+}